@@ -0,0 +1,198 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+
+/**
+ * Drops and recreates the secondary indexes of an H2 db, so bulk loads don't
+ * pay for index maintenance on each inserted row. Only plain non unique
+ * indexes created explicitly by the schema are touched: primary keys, unique
+ * indexes and indexes backing constraints are left in place.
+ *
+ * <p>
+ * Before dropping, the statements to recreate the indexes are saved into a
+ * recovery file in project dir, deleted only once all indexes are back. If
+ * the process dies in between, next connection finds the file and restores
+ * them.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+final class BulkIndexes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkIndexes.class);
+
+    /**
+     * Recovery file name, stored in project dir.
+     *
+     * @since 0.1.0
+     */
+    static final String FILENAME = DiverCli.CMD + "-bulk-indexes.sql";
+
+    private static final String SECONDARY_INDEXES_QUERY = "SELECT DISTINCT TABLE_SCHEMA, INDEX_NAME, SQL"
+            + " FROM INFORMATION_SCHEMA.INDEXES"
+            + " WHERE PRIMARY_KEY = FALSE AND NON_UNIQUE = TRUE AND IS_GENERATED = FALSE"
+            + " AND CONSTRAINT_NAME IS NULL AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA'";
+
+    private BulkIndexes() {
+    }
+
+    /**
+     * Saves the recovery file and drops secondary indexes.
+     *
+     * @return the number of dropped indexes
+     *
+     * @throws DiverCliException
+     *             if a recovery file from a previous bulk load is still there
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    static int drop(Session session, final File recoveryFile) {
+        checkNotNull(session);
+        checkNotNull(recoveryFile);
+
+        if (recoveryFile.exists()) {
+            throw new DiverCliException("Found indexes of a previous bulk load still to restore in "
+                    + recoveryFile.getAbsolutePath() + ", reconnect to restore them first!");
+        }
+
+        final int[] ret = { 0 };
+        session.doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                Map<String, String> indexes = new LinkedHashMap<>();
+                try (Statement st = connection.createStatement();
+                        ResultSet rs = st.executeQuery(SECONDARY_INDEXES_QUERY)) {
+                    while (rs.next()) {
+                        indexes.put(quote(rs.getString(1)) + "." + quote(rs.getString(2)), rs.getString(3));
+                    }
+                }
+
+                saveRecovery(new ArrayList<>(indexes.values()), recoveryFile);
+
+                try (Statement st = connection.createStatement()) {
+                    for (String index : indexes.keySet()) {
+                        LOG.debug("Dropping index " + index);
+                        st.execute("DROP INDEX IF EXISTS " + index);
+                        ret[0] += 1;
+                    }
+                }
+            }
+        });
+        return ret[0];
+    }
+
+    /**
+     * Recreates indexes listed in {@code recoveryFile}, if it exists, and then
+     * deletes it. Indexes already present are skipped, so it's safe to call it
+     * again after a partial restore.
+     *
+     * @return the number of indexes in the recovery file
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    static int restore(Session session, File recoveryFile) {
+        checkNotNull(session);
+        checkNotNull(recoveryFile);
+
+        if (!recoveryFile.exists()) {
+            return 0;
+        }
+
+        final List<String> statements;
+        try {
+            statements = Files.readAllLines(recoveryFile.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't read indexes to restore from " + recoveryFile.getAbsolutePath(),
+                    ex);
+        }
+
+        session.doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                try (Statement st = connection.createStatement()) {
+                    for (String statement : statements) {
+                        if (!statement.trim()
+                                      .isEmpty()) {
+                            LOG.debug("Restoring index: " + statement);
+                            st.execute(ifNotExists(statement));
+                        }
+                    }
+                }
+            }
+        });
+
+        if (!recoveryFile.delete()) {
+            throw new DiverCliIoException("Restored indexes but couldn't delete " + recoveryFile.getAbsolutePath());
+        }
+        return statements.size();
+    }
+
+    /**
+     * Writes through a temporary file, so the recovery file is either
+     * complete or missing.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    private static void saveRecovery(List<String> statements, File recoveryFile) {
+        List<String> lines = new ArrayList<>();
+        for (String statement : statements) {
+            // statements are expected on a single line
+            lines.add(statement.replaceAll("\\s+", " "));
+        }
+        File temp = new File(recoveryFile.getAbsolutePath() + ".tmp");
+        try {
+            Files.write(temp.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), recoveryFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't save indexes to restore into " + recoveryFile.getAbsolutePath(),
+                    ex);
+        }
+    }
+
+    /**
+     * Turns a {@code CREATE [HASH] INDEX name ...} statement into one doing
+     * nothing when the index exists.
+     *
+     * @since 0.1.0
+     */
+    static String ifNotExists(String createIndex) {
+        if (createIndex.contains(" IF NOT EXISTS ")) {
+            return createIndex;
+        }
+        return createIndex.replaceFirst("^(?i)(\\s*CREATE\\s+(?:\\w+\\s+)*?INDEX)\\s+", "$1 IF NOT EXISTS ");
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
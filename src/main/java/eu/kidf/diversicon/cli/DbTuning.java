@@ -0,0 +1,332 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import org.hibernate.cfg.Environment;
+import org.hibernate.cfg.Settings;
+import org.ini4j.Wini;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.InvalidConfigException;
+import eu.kidf.diversicon.core.internal.Internals;
+
+/**
+ * Optional tuning of the db layer read from {@link DiverCli#DATABASE_SECTION_INI}
+ * section: connection pool, prepared statements cache, JDBC fetch and batch
+ * sizes.
+ *
+ * <p>
+ * UBY {@code DBConfig} has no room for these settings, and
+ * {@code Diversicon.connectToDb} builds its Hibernate configuration on its
+ * own, starting from the global properties of Hibernate {@link Environment}.
+ * So right before each connection {@link #applyToHibernate()} writes the
+ * settings there, replacing the ones of previous connections. System
+ * properties can't be used instead, as Hibernate copies them only once per
+ * JVM. Since this relies on a private field of Hibernate, after connecting
+ * {@link #verify(Settings)} checks the settings actually reached the session
+ * factory, so a Hibernate upgrade can't silently drop them.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+final class DbTuning {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DbTuning.class);
+
+    /**
+     * Ini keys mapped to the Hibernate properties they set
+     */
+    private static final Map<String, String> HIBERNATE_PROPERTIES;
+
+    static {
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put(DiverCli.POOL_MIN_SIZE_PROPERTY, "hibernate.c3p0.min_size");
+        m.put(DiverCli.POOL_MAX_SIZE_PROPERTY, "hibernate.c3p0.max_size");
+        m.put(DiverCli.STATEMENT_CACHE_SIZE_PROPERTY, "hibernate.c3p0.max_statements");
+        m.put(DiverCli.FETCH_SIZE_PROPERTY, "hibernate.jdbc.fetch_size");
+        m.put(DiverCli.BATCH_SIZE_PROPERTY, "hibernate.jdbc.batch_size");
+        HIBERNATE_PROPERTIES = Collections.unmodifiableMap(m);
+    }
+
+    /**
+     * Hibernate properties set when JDBC batching is on
+     */
+    private static final List<String> BATCH_ORDERING_PROPERTIES = Collections.unmodifiableList(
+            Arrays.asList(Environment.ORDER_INSERTS, Environment.ORDER_UPDATES));
+
+    /**
+     * Whether some tuning was ever written into Hibernate global properties
+     * in this JVM
+     */
+    private static boolean applied = false;
+
+    /**
+     * Raw values as found in ini files, project ones overriding global ones
+     */
+    private Map<String, String> values;
+
+    /**
+     * Raw values as found in the project ini only, the ones to save back
+     */
+    private Map<String, String> projectValues;
+
+    /**
+     * Values set for current execution only, never saved
+     */
+    private Map<String, String> overrides;
+
+    /**
+     * Creates an empty tuning, which leaves Hibernate defaults.
+     *
+     * @since 0.1.0
+     */
+    DbTuning() {
+        this.values = new LinkedHashMap<>();
+        this.projectValues = new LinkedHashMap<>();
+        this.overrides = new LinkedHashMap<>();
+    }
+
+    /**
+     * Reads tuning keys from {@code ini}. Keys present in the ini override
+     * values read so far, so projects can override global settings.
+     *
+     * @since 0.1.0
+     */
+    void load(Wini ini) {
+        checkNotNull(ini);
+        for (String key : HIBERNATE_PROPERTIES.keySet()) {
+            String value = DiverCli.extract(DiverCli.DATABASE_SECTION_INI, key, ini);
+            if (!Internals.isBlank(value)) {
+                values.put(key, value.trim());
+            }
+        }
+    }
+
+    /**
+     * Like {@link #load(Wini)}, also remembering the keys found as the ones
+     * of the project, which are the only ones {@link #save(Wini)} writes.
+     *
+     * @since 0.1.0
+     */
+    void loadProject(Wini ini) {
+        checkNotNull(ini);
+        load(ini);
+        for (String key : HIBERNATE_PROPERTIES.keySet()) {
+            String value = DiverCli.extract(DiverCli.DATABASE_SECTION_INI, key, ini);
+            if (!Internals.isBlank(value)) {
+                projectValues.put(key, value.trim());
+            }
+        }
+    }
+
+    /**
+     * @throws InvalidConfigException
+     *
+     * @since 0.1.0
+     */
+    void check(File iniFile) {
+        for (String key : values.keySet()) {
+            int value;
+            try {
+                value = Integer.parseInt(values.get(key));
+            } catch (NumberFormatException ex) {
+                throw new InvalidConfigException("Expected an integer for " + key + " field in "
+                        + DiverCli.DATABASE_SECTION_INI + " section in " + iniFile + " file, found instead: "
+                        + values.get(key));
+            }
+            if (value < 0) {
+                throw new InvalidConfigException("Expected a non negative " + key + " field in "
+                        + DiverCli.DATABASE_SECTION_INI + " section in " + iniFile + " file, found instead: "
+                        + value);
+            }
+        }
+
+        Integer min = get(DiverCli.POOL_MIN_SIZE_PROPERTY);
+        Integer max = get(DiverCli.POOL_MAX_SIZE_PROPERTY);
+        if (max != null && max == 0) {
+            throw new InvalidConfigException("Expected a positive " + DiverCli.POOL_MAX_SIZE_PROPERTY + " field in "
+                    + DiverCli.DATABASE_SECTION_INI + " section in " + iniFile + " file!");
+        }
+        if (min != null && max != null && min > max) {
+            throw new InvalidConfigException(DiverCli.POOL_MIN_SIZE_PROPERTY + " can't be greater than "
+                    + DiverCli.POOL_MAX_SIZE_PROPERTY + " in " + DiverCli.DATABASE_SECTION_INI + " section in "
+                    + iniFile + " file!");
+        }
+    }
+
+    /**
+     * Forgets values read from ini files, keeping overrides.
+     *
+     * @since 0.1.0
+     */
+    void clearValues() {
+        values.clear();
+        projectValues.clear();
+    }
+
+    /**
+     * Forgets values set with {@link #override(String, int)}
+     *
+     * @since 0.1.0
+     */
+    void clearOverrides() {
+        overrides.clear();
+    }
+
+    /**
+     * Sets {@code key} for current execution only, taking precedence over ini
+     * values. Overrides are not saved.
+     *
+     * @since 0.1.0
+     */
+    void override(String key, int value) {
+        checkArgument(HIBERNATE_PROPERTIES.containsKey(key), "Unknown tuning key: " + key);
+        checkArgument(value >= 0, "Expected a non negative " + key + ", found instead " + value);
+        overrides.put(key, Integer.toString(value));
+    }
+
+    /**
+     * Returns the value of tuning key, or null if not set.
+     *
+     * @throws NumberFormatException
+     *             if value was not checked with {@link #check(File)}
+     *
+     * @since 0.1.0
+     */
+    @Nullable
+    Integer get(String key) {
+        String value = overrides.containsKey(key) ? overrides.get(key) : values.get(key);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    /**
+     * Writes tuning keys read from the project ini into {@code ini}. Global
+     * ones are left out, so they aren't frozen into the project.
+     *
+     * @since 0.1.0
+     */
+    void save(Wini ini) {
+        for (Map.Entry<String, String> entry : projectValues.entrySet()) {
+            ini.put(DiverCli.DATABASE_SECTION_INI, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Writes the tuning into Hibernate global properties, from which each new
+     * Hibernate configuration starts, so it reaches the session factory built
+     * by next connection. Tuning previously applied and not set anymore goes
+     * back to what the JVM system properties say, if anything. When JDBC
+     * batching is on, inserts and updates are also ordered by entity, so
+     * consecutive statements can go in the same batch.
+     *
+     * @throws DiverCliException
+     *             if Hibernate global properties can't be accessed while some
+     *             tuning is set.
+     *
+     * @since 0.1.0
+     */
+    void applyToHibernate() {
+        Map<String, String> merged = new LinkedHashMap<>(values);
+        merged.putAll(overrides);
+
+        synchronized (DbTuning.class) {
+            if (merged.isEmpty() && !applied) {
+                // nothing to set nor to reset, no need to peek into Hibernate
+                return;
+            }
+
+            Properties global = hibernateGlobalProperties();
+
+            List<String> all = new ArrayList<>(HIBERNATE_PROPERTIES.values());
+            all.addAll(BATCH_ORDERING_PROPERTIES);
+            for (String hibernateProperty : all) {
+                String systemValue = System.getProperty(hibernateProperty);
+                if (systemValue == null) {
+                    global.remove(hibernateProperty);
+                } else {
+                    global.setProperty(hibernateProperty, systemValue);
+                }
+            }
+
+            for (Map.Entry<String, String> entry : merged.entrySet()) {
+                global.setProperty(HIBERNATE_PROPERTIES.get(entry.getKey()), entry.getValue());
+            }
+            Integer batchSize = get(DiverCli.BATCH_SIZE_PROPERTY);
+            if (batchSize != null && batchSize > 0) {
+                for (String hibernateProperty : BATCH_ORDERING_PROPERTIES) {
+                    global.setProperty(hibernateProperty, "true");
+                }
+            }
+            applied = true;
+        }
+        LOG.debug("Applied db tuning: " + merged);
+    }
+
+    /**
+     * Checks the batch and fetch sizes of the tuning are the ones of the
+     * session factory built by last connection.
+     *
+     * @throws DiverCliException
+     *             if they differ, i.e. Hibernate doesn't read its global
+     *             properties anymore.
+     *
+     * @since 0.1.0
+     */
+    void verify(Settings settings) {
+        checkNotNull(settings);
+        Integer batchSize = get(DiverCli.BATCH_SIZE_PROPERTY);
+        if (batchSize != null && batchSize != settings.getJdbcBatchSize()) {
+            throw new DiverCliException("Db tuning didn't reach Hibernate: expected "
+                    + DiverCli.BATCH_SIZE_PROPERTY + " " + batchSize + ", found instead "
+                    + settings.getJdbcBatchSize() + ". Tuning in " + DiverCli.DATABASE_SECTION_INI
+                    + " section can't be applied with this Hibernate version!");
+        }
+        Integer fetchSize = get(DiverCli.FETCH_SIZE_PROPERTY);
+        if (fetchSize != null && !fetchSize.equals(settings.getJdbcFetchSize())) {
+            throw new DiverCliException("Db tuning didn't reach Hibernate: expected "
+                    + DiverCli.FETCH_SIZE_PROPERTY + " " + fetchSize + ", found instead "
+                    + settings.getJdbcFetchSize() + ". Tuning in " + DiverCli.DATABASE_SECTION_INI
+                    + " section can't be applied with this Hibernate version!");
+        }
+    }
+
+    /**
+     * Returns the live properties Hibernate {@link Environment} copies into
+     * each new configuration.
+     *
+     * @throws DiverCliException
+     *             if the field is missing or not accessible
+     *
+     * @since 0.1.0
+     */
+    private static Properties hibernateGlobalProperties() {
+        try {
+            Field field = Environment.class.getDeclaredField("GLOBAL_PROPERTIES");
+            field.setAccessible(true);
+            Properties ret = (Properties) field.get(null);
+            if (ret == null) {
+                throw new DiverCliException("Found null Hibernate global properties, db tuning in "
+                        + DiverCli.DATABASE_SECTION_INI + " section can't be applied with this Hibernate version!");
+            }
+            return ret;
+        } catch (NoSuchFieldException | IllegalAccessException | ClassCastException | SecurityException ex) {
+            throw new DiverCliException("Couldn't access Hibernate global properties, db tuning in "
+                    + DiverCli.DATABASE_SECTION_INI + " section can't be applied with this Hibernate version!", ex);
+        }
+    }
+}
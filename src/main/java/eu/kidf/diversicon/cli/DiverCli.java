@@ -10,15 +10,28 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
 import javax.annotation.Nullable;
 
 import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.ini4j.Wini;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +41,7 @@ import com.beust.jcommander.MissingCommandException;
 import com.beust.jcommander.ParameterException;
 
 import de.tudarmstadt.ukp.lmf.transform.DBConfig;
+import eu.kidf.diversicon.cli.commands.BatchCommand;
 import eu.kidf.diversicon.cli.commands.DbAugmentCommand;
 import eu.kidf.diversicon.cli.commands.DbResetCommand;
 import eu.kidf.diversicon.cli.commands.DiverCliCommand;
@@ -38,6 +52,8 @@ import eu.kidf.diversicon.cli.commands.ImportShowCommand;
 import eu.kidf.diversicon.cli.commands.ImportXmlCommand;
 import eu.kidf.diversicon.cli.commands.InitCommand;
 import eu.kidf.diversicon.cli.commands.LogCommand;
+import eu.kidf.diversicon.cli.commands.ServeCommand;
+import eu.kidf.diversicon.cli.commands.ShellCommand;
 import eu.kidf.diversicon.cli.commands.ValidateCommand;
 import eu.kidf.diversicon.cli.exceptions.DiverCliException;
 import eu.kidf.diversicon.cli.exceptions.DiverCliIllegalStateException;
@@ -187,6 +203,49 @@ public final class DiverCli {
      * @since 0.1.0
      */
     public static final String HTTP_PROXY_PROPERTY = "http_proxy";    
+
+    /**
+     * Minimum number of pooled db connections
+     * 
+     * @since 0.1.0
+     */
+    public static final String POOL_MIN_SIZE_PROPERTY = "pool_min_size";
+
+    /**
+     * Maximum number of pooled db connections
+     * 
+     * @since 0.1.0
+     */
+    public static final String POOL_MAX_SIZE_PROPERTY = "pool_max_size";
+
+    /**
+     * Number of prepared statements cached by the connection pool 
+     * 
+     * @since 0.1.0
+     */
+    public static final String STATEMENT_CACHE_SIZE_PROPERTY = "statement_cache_size";
+
+    /**
+     * Number of rows fetched by JDBC in each round trip
+     * 
+     * @since 0.1.0
+     */
+    public static final String FETCH_SIZE_PROPERTY = "fetch_size";
+
+    /**
+     * Number of statements Hibernate sends to JDBC in a single batch
+     * 
+     * @since 0.1.0
+     */
+    public static final String BATCH_SIZE_PROPERTY = "batch_size";
+
+    /**
+     * If true, H2 databases are loaded with reduced durability, see
+     * {@link #beginFastLoad()}
+     * 
+     * @since 0.1.0
+     */
+    public static final String FAST_LOAD_PROPERTY = "fast_load";
     
 
     /**
@@ -214,8 +273,52 @@ public final class DiverCli {
 
     public static final String SYSTEM_PROPERTY_TESTING = "divercli.testing";
 
+    /**
+     * Two letters at least, so Windows drive letters are not taken as schemes
+     */
+    private static final Pattern URL_SCHEME_PATTERN = Pattern.compile("[a-zA-Z][a-zA-Z0-9+.-]+:");
+
+    /**
+     * Commands which run other commands within the same JVM.
+     * 
+     * @since 0.1.0
+     */
+    private static final Set<String> SESSION_COMMANDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(ServeCommand.CMD, ShellCommand.CMD, BatchCommand.CMD)));
+
+    /**
+     * Command names mapped to their implementing classes, in the order they
+     * are shown in usage. Classes are given by name so they are loaded only 
+     * when actually needed. Each class must have a public constructor 
+     * accepting a {@link DiverCli}.
+     * 
+     * @since 0.1.0
+     */
+    private static final Map<String, String> COMMAND_INDEX;
+    
+    static {
+        String pkg = DiverCliCommand.class.getPackage().getName() + ".";
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put(ExportXmlCommand.CMD, pkg + "ExportXmlCommand");
+        m.put(ExportSqlCommand.CMD, pkg + "ExportSqlCommand");
+        m.put(InitCommand.CMD, pkg + "InitCommand");
+        m.put(DbResetCommand.CMD, pkg + "DbResetCommand");
+        m.put(LogCommand.CMD, pkg + "LogCommand");
+        m.put(ImportShowCommand.CMD, pkg + "ImportShowCommand");
+        m.put(ImportXmlCommand.CMD, pkg + "ImportXmlCommand");
+        m.put(DbAugmentCommand.CMD, pkg + "DbAugmentCommand");
+        m.put(HelpCommand.CMD, pkg + "HelpCommand");
+        m.put(ValidateCommand.CMD, pkg + "ValidateCommand");
+        m.put(ServeCommand.CMD, pkg + "ServeCommand");
+        m.put(ShellCommand.CMD, pkg + "ShellCommand");
+        m.put(BatchCommand.CMD, pkg + "BatchCommand");
+        COMMAND_INDEX = Collections.unmodifiableMap(m);
+    }
+
     private static JCommander jcom;
 
+    private static boolean sessionRunning = false;
+
     @Nullable
     private Diversicon diversicon;
 
@@ -246,6 +349,30 @@ public final class DiverCli {
 
     private Map<String, DiverCliCommand> commands;
 
+    private Map<String, String> commandIndex;
+
+    // used by MainCommand for profiling, don't make it private
+    StartupProfiler profiler = StartupProfiler.DISABLED;
+
+    private DbTuning dbTuning = new DbTuning();
+
+    @Nullable
+    private String fastLoadString;
+
+    /**
+     * The db config to restore after a fast load, null if no fast load is in
+     * progress
+     */
+    @Nullable
+    private DBConfig fastLoadOriginal;
+
+    /**
+     * Directory relative file arguments are resolved against, if null they
+     * are resolved against the current directory of the JVM
+     */
+    @Nullable
+    private File workingDir;
+
     
 
     /**
@@ -255,6 +382,7 @@ public final class DiverCli {
         String[] s = {};
         this.args = s;
         this.commands = new HashMap<>();
+        this.commandIndex = COMMAND_INDEX;
         this.divConfig = DivConfig.of();
         this.globallyConfigured = false;
         this.projectConfigured = false;
@@ -278,32 +406,49 @@ public final class DiverCli {
      */
     public static void main(String... args) {
 
-        DiverCli cli = new DiverCli(args);
+        runOrExit(new DiverCli(args));
+    }
 
+    /**
+     * Runs given {@code cli}, on error reports it to the user and exits
+     * the program.
+     * 
+     * @since 0.1.0
+     */
+    static void runOrExit(DiverCli cli) {
         try {
             cli.run();
-        } catch (MissingCommandException ex) {
+        } catch (Exception ex) {
+            exit(cli.reportError(ex));
+        }
+    }
+
+    /**
+     * Logs the user-friendly version of an error thrown while running
+     * commands and returns the exit code the program should terminate with.
+     * 
+     * @since 0.1.0
+     */
+    private int reportError(Exception ex) {
+        if (ex instanceof MissingCommandException) {
             final String GOT = "got ";
             int i = ex.getMessage()
                       .indexOf(GOT);
             if (i != -1) {
                 String cmd = ex.getMessage()
                                .substring(i + GOT.length());
-                cli.didYouMean(cmd);
+                didYouMean(cmd);
             }
-            exit(1);
-
-        } catch (ParameterException ex) {
+        } else if (ex instanceof ParameterException) {
             LOG.error("");
             LOG.error(ex.getMessage());
             LOG_DETAILS.error("Error parsing parameters!", ex);
-            exit(1);
-        } catch (Exception ex) {
-            LOG.error("");            
+        } else {
+            LOG.error("");
             LOG.error(Internals.getExceptionMessages(ex) + " (For details, see " + LOGFILE + ")");
             LOG_DETAILS.error("", ex);
-            exit(1);
         }
+        return 1;
     }
 
     /**
@@ -315,7 +460,7 @@ public final class DiverCli {
      *
      * @since 0.1.0
      */
-    private static void exit(int code) {
+    static void exit(int code) {
         if (Boolean.parseBoolean(System.getProperty(DiverCli.SYSTEM_PROPERTY_TESTING))) {
             throw new DiverCliTerminatedException(code);
         } else {
@@ -367,6 +512,118 @@ public final class DiverCli {
         
     }
 
+    /**
+     * Instantiates the command registered with {@code name} in the command index.
+     * 
+     * @throws DiverCliNotFoundException
+     *             if there is no such command
+     * @since 0.1.0
+     */
+    DiverCliCommand newCommand(String name) {
+        String className = commandIndex.get(name);
+        if (className == null) {
+            throw new DiverCliNotFoundException("There is no command named " + name);
+        }
+        try {
+            return Class.forName(className)
+                        .asSubclass(DiverCliCommand.class)
+                        .getConstructor(DiverCli.class)
+                        .newInstance(this);
+        } catch (ReflectiveOperationException ex) {
+            throw new DiverCliException("Couldn't instantiate command " + name + " !", ex);
+        }
+    }
+
+    /**
+     * Makes only the commands with given names available to this instance.
+     * 
+     * @throws IllegalArgumentException
+     *             if some command doesn't exist
+     * 
+     * @since 0.1.0
+     */
+    void restrictCommands(Collection<String> names) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (String name : names) {
+            checkArgument(COMMAND_INDEX.containsKey(name), "There is no command named " + name);
+            m.put(name, COMMAND_INDEX.get(name));
+        }
+        this.commandIndex = Collections.unmodifiableMap(m);
+    }
+
+    /**
+     * Returns the names of all the available commands, even if not 
+     * registered in current execution.
+     * 
+     * @since 0.1.0
+     */
+    public static Set<String> commandNames() {
+        return COMMAND_INDEX.keySet();
+    }
+
+    /**
+     * Returns the names of the commands this instance can run, which may be
+     * fewer than {@link #commandNames()} as in {@link DiverCliLite}.
+     * 
+     * @since 0.1.0
+     */
+    public Set<String> availableCommandNames() {
+        return commandIndex.keySet();
+    }
+
+    /**
+     * Returns the first argument which is neither a main option nor its value,
+     * or null if there is none. 
+     * 
+     * @since 0.1.0
+     */
+    @Nullable
+    static String findCommandName(String[] cmdArgs) {
+        int i = findCommandIndex(cmdArgs);
+        return i == -1 ? null : cmdArgs[i];
+    }
+
+    /**
+     * Returns the position of the first argument which is neither a main
+     * option nor its value, or -1 if there is none.
+     * 
+     * @since 0.1.0
+     */
+    private static int findCommandIndex(String[] cmdArgs) {
+        for (int i = 0; i < cmdArgs.length; i++) {
+            String arg = cmdArgs[i];
+            if (arg.startsWith("-")) {
+                if (MainCommand.VALUE_OPTIONS.contains(arg)) {
+                    i++;
+                }
+            } else {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if main {@code option} appears before the command name,
+     * without parsing the arguments. 
+     * 
+     * @since 0.1.0
+     */
+    static boolean hasMainOption(String[] cmdArgs, String option) {
+        int end = findCommandIndex(cmdArgs);
+        if (end == -1) {
+            end = cmdArgs.length;
+        }
+        for (int i = 0; i < end; i++) {
+            if (MainCommand.VALUE_OPTIONS.contains(cmdArgs[i])) {
+                i++;
+            } else if (cmdArgs[i].equals(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * @since 0.1.0
      */
@@ -376,7 +633,8 @@ public final class DiverCli {
     }
 
     /**
-     * Runs the cli, actually parsing the arguments.
+     * Runs the cli, actually parsing the arguments. At the end the connection
+     * to the database (if any) is closed.
      * 
      * On error directly throws exceptions from commands.   
      * 
@@ -384,79 +642,276 @@ public final class DiverCli {
      */
     public void run() {
         try {
+            execute(args);
+        } finally {
+            disconnect();
+            reportProfile();
+        }
+    }
+
+    /**
+     * If {@link MainCommand#PROFILE_STARTUP_OPTION} was given, logs the 
+     * profile of last execution as a JSON line. 
+     * 
+     * @since 0.1.0
+     */
+    private void reportProfile() {
+        if (profiler.isEnabled()) {
             LOG.info("");
-            
-            MainCommand mainCommand;
-
-            mainCommand = new MainCommand(this);
-
-            jcom = new JCommander(mainCommand);
-
-            // doesn't work well, see
-            // https://github.com/diversicon-kb/divercli/issues/1
-            // int terminalWidth = jline.TerminalFactory.get().getWidth();
-            // jcom.setColumnSize(terminalWidth);
-
-            addCommand(new ExportXmlCommand(this));
-            addCommand(new ExportSqlCommand(this));
-            addCommand(new InitCommand(this));
-            addCommand(new DbResetCommand(this));
-            addCommand(new LogCommand(this));
-            addCommand(new ImportShowCommand(this));
-            addCommand(new ImportXmlCommand(this));
-            addCommand(new DbAugmentCommand(this));
-            addCommand(new HelpCommand(this));
-            addCommand(new ValidateCommand(this));
-
-            jcom.parse(args);
-
-            if (args.length == 0) {
-                StringBuilder sb = new StringBuilder();
-                jcom.usage(sb);
-                LOG.info(sb.toString());
-                mainCommand.configure();
-            } else {
+            LOG.info(profiler.toJson());
+            profiler = StartupProfiler.DISABLED;
+        }
+    }
 
-                mainCommand.configure();     
-                
-                String parsedCmd = jcom.getParsedCommand();                
-                
-                if (!(null == parsedCmd
-                        || HelpCommand.CMD.equals(parsedCmd)
-                        || ValidateCommand.CMD.equals(parsedCmd)
-                        || mainCommand.isHelp() // so it still behaves in a handy way with '--help'
-                        || InitCommand.CMD.equals(parsedCmd))){
-                    configureProject();    
+    /**
+     * Parses and runs provided arguments like {@link #run()} does, but 
+     * configuration already read and the connection to the database are 
+     * kept and reused, so the method can be called many times on the same
+     * instance. Call {@link #disconnect()} when done.
+     * 
+     * On error directly throws exceptions from commands.
+     * 
+     * @throws DiverCliIllegalStateException
+     *             if a session command like {@code serve} is invoked while
+     *             another session command is already running.
+     * 
+     * @since 0.1.0
+     */
+    public void execute(String... cmdArgs) {
+        checkNotNull(cmdArgs);
+
+        LOG.info("");
+
+        String cmdName = findCommandName(cmdArgs);
+
+        // checked before parsing so we can also time parsing
+        if (hasMainOption(cmdArgs, MainCommand.PROFILE_STARTUP_OPTION)) {
+            profiler = StartupProfiler.of(cmdName);
+        } else {
+            profiler = StartupProfiler.DISABLED;
+        }
+
+        StartupProfiler.Phase parsePhase = profiler.phase("parseArgs");
+
+        dbTuning.clearOverrides();
+
+        MainCommand mainCommand;
+
+        mainCommand = new MainCommand(this);
+
+        commands = new HashMap<>();
+        jcom = new JCommander(mainCommand);
+
+        // doesn't work well, see
+        // https://github.com/diversicon-kb/divercli/issues/1
+        // int terminalWidth = jline.TerminalFactory.get().getWidth();
+        // jcom.setColumnSize(terminalWidth);
+
+        // only the invoked command gets loaded, unless we need all of them to 
+        // show usage or to complain about unknown commands
+        if (cmdName == null 
+                || HelpCommand.CMD.equals(cmdName) 
+                || !commandIndex.containsKey(cmdName) 
+                || Arrays.asList(cmdArgs).contains(MainCommand.HELP_OPTION)) {
+            for (String name : commandIndex.keySet()) {
+                addCommand(newCommand(name));
+            }
+        } else {
+            addCommand(newCommand(cmdName));
+        }
+
+        jcom.parse(cmdArgs);
+        
+        parsePhase.close();
+
+        if (cmdArgs.length == 0) {
+            StringBuilder sb = new StringBuilder();
+            jcom.usage(sb);
+            LOG.info(sb.toString());
+            mainCommand.configure();
+        } else {
+
+            try (StartupProfiler.Phase p = profiler.phase("MainCommand.configure")) {
+                mainCommand.configure();
+            }
+            
+            String parsedCmd = jcom.getParsedCommand();                
+            
+            if (!(null == parsedCmd
+                    || HelpCommand.CMD.equals(parsedCmd)
+                    || ValidateCommand.CMD.equals(parsedCmd)
+                    || SESSION_COMMANDS.contains(parsedCmd)
+                    || mainCommand.isHelp() // so it still behaves in a handy way with '--help'
+                    || InitCommand.CMD.equals(parsedCmd)
+                    || isProjectConfigured())){
+                try (StartupProfiler.Phase p = profiler.phase("configureProject")) {
+                    configureProject();
                 }
+            }
+            
+            mainCommand.run();
+            
+            if (parsedCmd == null){
                 
-                mainCommand.run();
-                
-                if (parsedCmd == null){
-                    
-                    if (!mainCommand.isResetGlobalConf()) {
-                        if (mainCommand.isHelp()){
-                            // so it still behaves in a handy way with '--help'
-                            HelpCommand hc = new HelpCommand(this);
-                            hc.configure();
-                            hc.run();
-                        } else {
-                            LOG.error("\n  No command given. Quitting... \n");
-                        }
-                        
+                if (!mainCommand.isResetGlobalConf()) {
+                    if (mainCommand.isHelp()){
+                        // so it still behaves in a handy way with '--help'
+                        HelpCommand hc = new HelpCommand(this);
+                        hc.configure();
+                        hc.run();
+                    } else {
+                        LOG.error("\n  No command given. Quitting... \n");
                     }
                     
-                } else {
-                    DiverCliCommand cmd = commands.get(parsedCmd);                    
+                }
+                
+            } else {
+                DiverCliCommand cmd = commands.get(parsedCmd);                    
+                try (StartupProfiler.Phase p = profiler.phase("command.configure")) {
                     cmd.configure();
-                    cmd.run();
-                    if ( InitCommand.CMD.equals(parsedCmd)){
-                        configureProject();
+                }
+                if (SESSION_COMMANDS.contains(parsedCmd)){
+                    runSessionCommand(cmd);
+                } else {
+                    try (StartupProfiler.Phase p = profiler.phase("command.run")) {
+                        cmd.run();
                     }
                 }
+                if ( InitCommand.CMD.equals(parsedCmd)){
+                    configureProject();
+                }
+            }
 
+        }
+    }
+
+    /**
+     * Like {@link #execute(String...)}, but instead of throwing errors 
+     * reports them to the user in the same way the program entry point does. 
+     * 
+     * @return the exit code, 0 on success.
+     * 
+     * @since 0.1.0
+     */
+    public int tryExecute(String... cmdArgs) {
+        try {
+            execute(cmdArgs);
+            return 0;
+        } catch (Exception ex) {
+            return reportError(ex);
+        } finally {
+            reportProfile();
+        }
+    }
+
+    /**
+     * Splits a command line into arguments. Arguments are separated by
+     * whitespace, unless it is quoted with single or double quotes or escaped
+     * with a backslash.
+     * 
+     * @throws IllegalArgumentException
+     *             on unbalanced quotes
+     * 
+     * @since 0.1.0
+     */
+    public static String[] splitArgs(String line) {
+        checkNotNull(line);
+
+        List<String> ret = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else if (c == '\\' && quote == '"' && i + 1 < line.length()) {
+                    i++;
+                    sb.append(line.charAt(i));
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+                inArg = true;
+            } else if (c == '\\' && i + 1 < line.length()) {
+                i++;
+                sb.append(line.charAt(i));
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    ret.add(sb.toString());
+                    sb.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                sb.append(c);
+                inArg = true;
+            }
+        }
+        
+        checkArgument(quote == 0, "Unbalanced quotes in command line: " + line);
+        
+        if (inArg) {
+            ret.add(sb.toString());
+        }
+        return ret.toArray(new String[ret.size()]);
+    }
+
+    /**
+     * Returns a copy of {@code cmdArgs} which selects {@code projectDir} with 
+     * {@link MainCommand#PRJ_OPTION}, unless a project is already
+     * selected.
+     * 
+     * @since 0.1.0
+     */
+    public static String[] withProject(String[] cmdArgs, File projectDir) {
+        checkNotNull(cmdArgs);
+        checkNotNull(projectDir);
+
+        if (Arrays.asList(cmdArgs).contains(MainCommand.PRJ_OPTION)) {
+            return Arrays.copyOf(cmdArgs, cmdArgs.length);
+        }
+        String[] ret = new String[cmdArgs.length + 2];
+        ret[0] = MainCommand.PRJ_OPTION;
+        ret[1] = projectDir.getAbsolutePath();
+        System.arraycopy(cmdArgs, 0, ret, 2, cmdArgs.length);
+        return ret;
+    }
+
+    /**
+     * Formats nanoseconds as seconds for the user, like {@code 1.234 s}
+     * 
+     * @since 0.1.0
+     */
+    public static String formatElapsed(long nanos) {
+        return String.format(Locale.ROOT, "%.3f s", nanos / 1000000000.0);
+    }
+
+    /**
+     * Session commands keep running other commands in the same JVM, so we
+     * don't allow them to nest.
+     * 
+     * @throws DiverCliIllegalStateException
+     * 
+     * @since 0.1.0
+     */
+    private static void runSessionCommand(DiverCliCommand cmd) {
+        synchronized (DiverCli.class) {
+            if (sessionRunning) {
+                throw new DiverCliIllegalStateException("Command '" + cmd.getName()
+                        + "' can't be run while another session command is already running!");
             }
+            sessionRunning = true;
+        }
+        try {
+            cmd.run();
         } finally {
-            disconnect();
+            synchronized (DiverCli.class) {
+                sessionRunning = false;
+            }
         }
     }
 
@@ -477,6 +932,39 @@ public final class DiverCli {
         return projectDir;
     }
 
+    /**
+     * Sets the directory relative file arguments of next commands are
+     * resolved against. Needed when commands are issued by clients running in
+     * another directory, like with {@code serve}.
+     * 
+     * @param workingDir
+     *            if null, the current directory of the JVM is used.
+     * 
+     * @since 0.1.0
+     */
+    public void setWorkingDir(@Nullable File workingDir) {
+        this.workingDir = workingDir;
+    }
+
+    /**
+     * Makes a relative file path given as command argument absolute with
+     * respect to the working dir set with {@link #setWorkingDir(File)}.
+     * Urls like {@code http:} or {@code classpath:} ones and absolute paths
+     * are returned as they are.
+     * 
+     * @since 0.1.0
+     */
+    public String resolvePath(String path) {
+        checkNotNull(path);
+        if (workingDir == null
+                || path.isEmpty()
+                || URL_SCHEME_PATTERN.matcher(path).lookingAt()
+                || new File(path).isAbsolute()) {
+            return path;
+        }
+        return new File(workingDir, path).getAbsolutePath();
+    }
+
     /**
      * Returns true if DiverCLI current project has been configured.
      * 
@@ -508,7 +996,15 @@ public final class DiverCli {
         DiverCli.checkProjectDir(projectDir);
 
         try {
-            projectIni = loadIni(findProjectFile(DiverCli.INI_FILENAME));
+            // tuning of a previous project must not leak into this one
+            dbTuning.clearValues();
+            if (globalConfIni != null) {
+                dbTuning.load(globalConfIni);
+            }
+            try (StartupProfiler.Phase p = profiler.phase("loadIni.project")) {
+                projectIni = loadIni(findProjectFile(DiverCli.INI_FILENAME));
+            }
+            dbTuning.loadProject(projectIni);
 
             fixConfigIfTesting();
             
@@ -601,6 +1097,11 @@ public final class DiverCli {
         dbConfig.setShowSQL(false);       
        
         b.setDbConfig(dbConfig);
+
+        String fastLoadValue = DiverCli.extract(DiverCli.DATABASE_SECTION_INI, FAST_LOAD_PROPERTY, ini);
+        if (!Internals.isBlank(fastLoadValue)) {
+            fastLoadString = fastLoadValue.trim();
+        }
         
         String timeoutString = (DiverCli.extract(
                 DiverCli.FETCHER_SECTION_INI, 
@@ -658,7 +1159,84 @@ public final class DiverCli {
             throw new InvalidConfigException("Expected password field in " + DiverCli.DATABASE_SECTION_INI
                     + " section in " + new File(getProjectDir(), DiverCli.INI_FILENAME) + " file!");
         }
+        
+        dbTuning.check(new File(getProjectDir(), DiverCli.INI_FILENAME));
 
+        if (fastLoadString != null && !"true".equalsIgnoreCase(fastLoadString)
+                && !"false".equalsIgnoreCase(fastLoadString)) {
+            throw new InvalidConfigException("Expected true or false for " + FAST_LOAD_PROPERTY + " field in "
+                    + DiverCli.DATABASE_SECTION_INI + " section in " + new File(getProjectDir(), DiverCli.INI_FILENAME)
+                    + " file, found instead: " + fastLoadString);
+        }
+    }
+
+    /**
+     * Returns true if configuration asks to load the db with
+     * {@link #beginFastLoad()}
+     * 
+     * @since 0.1.0
+     */
+    public boolean isFastLoad() {
+        return "true".equalsIgnoreCase(fastLoadString);
+    }
+
+    /**
+     * Switches an H2 file db to reduced durability until
+     * {@link #endFastLoad()} or {@link #disconnect()}: no transaction and undo
+     * logs, bigger cache. Meant for databases which can always be
+     * rebuilt, as a crash during the load may corrupt them. Must be called
+     * before connecting.
+     * 
+     * @return false if the db is not an H2 file db, which is left untouched
+     * 
+     * @throws DiverCliIllegalStateException
+     *             if already connected
+     * 
+     * @since 0.1.0
+     */
+    public boolean beginFastLoad() {
+        if (isConnected()) {
+            throw new DiverCliIllegalStateException("Tried to begin fast load while already connected!");
+        }
+        if (fastLoadOriginal != null) {
+            return true;
+        }
+        DBConfig dbConfig = divConfig.getDbConfig();
+        if (dbConfig.getJdbc_url() == null || !dbConfig.getJdbc_url()
+                                                       .startsWith("jdbc:h2:file:")) {
+            LOG.warn("Fast load is only supported for H2 file databases, ignoring it.");
+            return false;
+        }
+        LOG.info("Fast load: durability is reduced until the end of the command.");
+        fastLoadOriginal = dbConfig;
+        divConfig = divConfig.withDbConfig(FastLoad.config(dbConfig));
+        return true;
+    }
+
+    /**
+     * Ends a fast load started with {@link #beginFastLoad()}, disconnecting
+     * and restoring safe settings. Database is then compacted. Does nothing
+     * if no fast load is in progress.
+     * 
+     * @since 0.1.0
+     */
+    public void endFastLoad() {
+        if (fastLoadOriginal == null) {
+            return;
+        }
+        if (isConnected()) {
+            closeSession();
+        }
+        DBConfig original = fastLoadOriginal;
+        fastLoadOriginal = null;
+        divConfig = divConfig.withDbConfig(original);
+        if (SchemaFingerprint.h2DbFile(original.getJdbc_url()) == null) {
+            // nothing was loaded
+            return;
+        }
+        LOG.info("Restoring safe db settings and compacting ...");
+        FastLoad.restore(original);
+        writeSchemaFingerprint();
     }
 
     
@@ -675,16 +1253,125 @@ public final class DiverCli {
 
         if (!isConnected()) {
 
-            if (Diversicons.isH2Db(divConfig.getDbConfig()) && Diversicons.isEmpty(divConfig.getDbConfig())) {
+            // before any Hibernate use, so also the emptiness probe gets it 
+            dbTuning.applyToHibernate();
+
+            try (StartupProfiler.Phase p = profiler.phase("connect.h2EmptinessProbe")) {
+                if (Diversicons.isH2Db(divConfig.getDbConfig())) {
+                    File fingerprintFile = new File(projectDir, SchemaFingerprint.FILENAME);
+                    SchemaFingerprint fingerprint = SchemaFingerprint.of(divConfig.getDbConfig());
+                    if (fingerprint != null && fingerprint.matches(fingerprintFile)) {
+                        LOG.debug("Db unchanged since last disconnection, skipping emptiness check.");
+                    } else if (Diversicons.isEmpty(divConfig.getDbConfig())) {
+                        Diversicons.dropCreateTables(divConfig.getDbConfig());
+                    }
+                    // db is going to change, fingerprint will be rewritten on disconnect
+                    fingerprintFile.delete();
+                }
+            }
 
-                Diversicons.dropCreateTables(divConfig.getDbConfig());
+            try (StartupProfiler.Phase p = profiler.phase("Diversicon.connectToDb")) {
+                diversicon = Diversicon.connectToDb(divConfig);
             }
+            dbTuning.verify(((SessionFactoryImplementor) diversicon.getSession()
+                                                                 .getSessionFactory()).getSettings());
 
-            diversicon = Diversicon.connectToDb(divConfig);
+            if (projectDir != null && new File(projectDir, BulkIndexes.FILENAME).exists()) {
+                LOG.warn("Found indexes dropped by an interrupted bulk import, restoring them ...");
+                restoreSecondaryIndexes();
+            }
         }
 
     }
 
+    /**
+     * Opens a read only jdbc connection to the project db outside of the
+     * Diversicon session, to be closed by the caller. H2 file dbs are opened
+     * without taking the file lock, so the connection doesn't block processes
+     * writing the db. This is best effort: H2 doesn't support readers of a
+     * file being written, so while another process writes the db data read
+     * may be stale and reads may fail.
+     * 
+     * @throws DiverCliException
+     *             if the connection can't be opened, for example because the
+     *             db is being written.
+     * 
+     * @since 0.1.0
+     */
+    public Connection openReadOnlyConnection() {
+        if (!isProjectConfigured()) {
+            configureProject();
+        }
+        DBConfig dbConfig = divConfig.getDbConfig();
+        String url = dbConfig.getJdbc_url();
+        if (url.startsWith("jdbc:h2:file:")) {
+            Map<String, String> settings = new LinkedHashMap<>();
+            settings.put("ACCESS_MODE_DATA", "r");
+            settings.put("FILE_LOCK", "NO");
+            url = FastLoad.withSettings(url, settings);
+        }
+        try {
+            Class.forName(dbConfig.getJdbc_driver_class());
+            Connection ret = DriverManager.getConnection(url, dbConfig.getUser(), dbConfig.getPassword());
+            ret.setReadOnly(true);
+            return ret;
+        } catch (ClassNotFoundException | SQLException ex) {
+            throw new DiverCliException("Couldn't open a read only connection to " + url
+                    + ", if another process is writing the db retry once it's done.", ex);
+        }
+    }
+
+    /**
+     * Drops secondary indexes of an H2 db to speed up a bulk import. To
+     * survive failures, indexes to restore are saved in project dir first,
+     * and restored on next connection if {@link #restoreSecondaryIndexes()}
+     * is not called.
+     * 
+     * @throws DiverCliException
+     *             if db is not H2
+     * @throws DiverCliIllegalStateException
+     *             if not connected
+     * 
+     * @since 0.1.0
+     */
+    public void dropSecondaryIndexes() {
+        checkConnected();
+        if (!Diversicons.isH2Db(divConfig.getDbConfig())) {
+            throw new DiverCliException("Dropping indexes for bulk imports is only supported for H2 databases!");
+        }
+        int n = BulkIndexes.drop(diversicon.getSession(), new File(projectDir, BulkIndexes.FILENAME));
+        LOG.info("Dropped " + n + " secondary indexes, they will be rebuilt at the end.");
+    }
+
+    /**
+     * Recreates secondary indexes dropped with {@link #dropSecondaryIndexes()}.
+     * Does nothing if there are none to restore.
+     * 
+     * @throws DiverCliIllegalStateException
+     *             if not connected
+     * 
+     * @since 0.1.0
+     */
+    public void restoreSecondaryIndexes() {
+        checkConnected();
+        long start = System.nanoTime();
+        int n = BulkIndexes.restore(diversicon.getSession(), new File(projectDir, BulkIndexes.FILENAME));
+        if (n > 0) {
+            LOG.info("Rebuilt " + n + " secondary indexes in " + formatElapsed(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * @throws DiverCliIllegalStateException
+     * 
+     * @since 0.1.0
+     */
+    private void checkConnected() {
+        if (!isConnected()) {
+            throw new DiverCliIllegalStateException("Divercli is not connected to the db!");
+        }
+    }
+
     /**
      * @throws DiverCliIllegalStateException
      * 
@@ -709,7 +1396,9 @@ public final class DiverCli {
     
     
     /**
-     * Returns the registered commands
+     * Returns the commands registered in the last execution. To speed up 
+     * startup only the invoked command is usually registered, for all the
+     * available ones see {@link #commandNames()}
      * 
      * @since 0.1.0
      */
@@ -726,12 +1415,48 @@ public final class DiverCli {
     public void disconnect() {
 
         if (isConnected()) {
-            diversicon.getSession()
-                      .close();
+            try (StartupProfiler.Phase p = profiler.phase("disconnect")) {
+                closeSession();
+                if (fastLoadOriginal == null) {
+                    writeSchemaFingerprint();
+                }
+            }
 
             LOG.info("");
             LOG.info("Disconnected.");
         }
+        endFastLoad();
+    }
+
+    /**
+     * Closes the session together with its connection pool.
+     * 
+     * @since 0.1.0
+     */
+    private void closeSession() {
+        Session session = diversicon.getSession();
+        SessionFactory sessionFactory = session.getSessionFactory();
+        session.close();
+        // closing the session only returns its connection to the pool, H2 
+        // writes the db file for the last time once all pooled ones are closed
+        sessionFactory.close();
+    }
+
+    /**
+     * Stores the state of the db after disconnecting, so next connection can 
+     * skip checking whether the schema has to be created. Must be called once 
+     * all the connections to the db are closed.
+     * 
+     * @since 0.1.0
+     */
+    private void writeSchemaFingerprint() {
+        if (projectDir == null || !Diversicons.isH2Db(divConfig.getDbConfig())) {
+            return;
+        }
+        SchemaFingerprint fingerprint = SchemaFingerprint.of(divConfig.getDbConfig());
+        if (fingerprint != null) {
+            fingerprint.write(new File(projectDir, SchemaFingerprint.FILENAME));
+        }
     }
 
     /**
@@ -1012,6 +1737,7 @@ public final class DiverCli {
         projectIni.put(DATABASE_SECTION_INI, "jdbc_url", dbCfg.getJdbc_url());
         projectIni.put(DATABASE_SECTION_INI, "user", dbCfg.getUser());
         projectIni.put(DATABASE_SECTION_INI, "password", dbCfg.getPassword());
+        dbTuning.save(projectIni);
 
         try {
             projectIni.store();
@@ -1022,6 +1748,43 @@ public final class DiverCli {
         }
     }
 
+    /**
+     * Sets the JDBC batch size for the db connection of current command,
+     * overriding {@link #BATCH_SIZE_PROPERTY} of ini files without saving it.
+     * If already connected with a different batch size, disconnects so next
+     * {@link #connect()} applies it.
+     * 
+     * @param batchSize
+     *            if zero, batching is disabled
+     * 
+     * @since 0.1.0
+     */
+    public void setBatchSize(int batchSize) {
+        dbTuning.override(BATCH_SIZE_PROPERTY, batchSize);
+        if (isConnected() && getJdbcBatchSize() != batchSize) {
+            LOG.debug("Reconnecting to apply batch size " + batchSize);
+            disconnect();
+        }
+    }
+
+    /**
+     * Returns the JDBC batch size Hibernate is actually using, 0 if batching
+     * is disabled.
+     * 
+     * @throws DiverCliIllegalStateException
+     *             if not connected
+     * 
+     * @since 0.1.0
+     */
+    public int getJdbcBatchSize() {
+        if (!isConnected()) {
+            throw new DiverCliIllegalStateException("Tried to get batch size while not connected!");
+        }
+        return ((SessionFactoryImplementor) diversicon.getSession()
+                                                      .getSessionFactory()).getSettings()
+                                                                           .getJdbcBatchSize();
+    }
+
     /**
      * @since 0.1.0
      */
@@ -1038,7 +1801,7 @@ public final class DiverCli {
     public void didYouMean(String commandName) {
 
         List<String> candidates = new ArrayList<>();
-        for (String candidate : commands.keySet()) {
+        for (String candidate : commandIndex.keySet()) {
             if (Internals.editDistance(commandName, candidate) < SUGGESTION_EDIT_DISTANCE) {
                 candidates.add(candidate);
             }
@@ -1085,6 +1848,19 @@ public final class DiverCli {
 
     }
 
+    /**
+     * Returns the file where a server started with
+     * {@link ServeCommand serve} publishes how to reach it.
+     * 
+     * @throws DiverCliIllegalStateException
+     * 
+     * @since 0.1.0
+     */
+    public File findServerFile() {
+        checkGloballyConfigured();
+        return new File(globalConfDir, DiverCliServer.SERVER_FILENAME);
+    }
+
     /**
      * Finds a file in user home under {@link #GLOBAL_CONF_DIR}.
      *
@@ -0,0 +1,230 @@
+package eu.kidf.diversicon.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import eu.kidf.diversicon.cli.exceptions.DiverCliTerminatedException;
+
+/**
+ * Thin client which forwards its arguments to a {@link DiverCliServer} started
+ * with {@code divercli serve} and prints back the output. If no server is
+ * running, the command is executed in-process by {@link DiverCli}.
+ *
+ * <p>
+ * Once a request reached the server it is never executed again locally: if
+ * the connection breaks afterwards the client only reports the error, as the
+ * server might have already run the command.
+ * </p>
+ *
+ * <p>
+ * To keep startup fast this class must not touch logging nor Diversicon
+ * classes unless it falls back to in-process execution.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+public final class DiverCliClient {
+
+    /**
+     * @since 0.1.0
+     */
+    public static final String CMD = "divercli-client";
+
+    /**
+     * Client only option to ask a running server to quit.
+     *
+     * @since 0.1.0
+     */
+    public static final String STOP_OPTION = "--stop-server";
+
+    private DiverCliClient() {
+    }
+
+    /**
+     * Entry point when program is run.
+     *
+     * @since 0.1.0
+     */
+    public static void main(String... args) {
+
+        Properties serverProps = readServerFile();
+
+        boolean stop = args.length == 1 && STOP_OPTION.equals(args[0]);
+
+        if (serverProps == null) {
+            if (stop) {
+                System.err.println("No " + DiverCli.CMD + " server is running.");
+                exit(1);
+                return;
+            }
+            DiverCli.main(args);
+            return;
+        }
+
+        int port = Integer.parseInt(serverProps.getProperty(DiverCliServer.PORT_PROPERTY));
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getByName(null), port);
+        } catch (IOException ex) {
+            if (stop) {
+                System.err.println("Couldn't reach " + DiverCli.CMD + " server: " + ex.getMessage());
+                exit(1);
+                return;
+            }
+            // stale server file, i.e. server was killed
+            DiverCli.main(args);
+            return;
+        }
+
+        int code;
+        try {
+            code = forward(socket, serverProps, stop ? null : args);
+        } catch (IOException ex) {
+            System.err.println("ERROR: Lost connection to " + DiverCli.CMD + " server while running the command,"
+                    + " it may have been partially executed: " + ex.getMessage());
+            code = 1;
+        }
+        if (code != 0) {
+            exit(code);
+        }
+    }
+
+    /**
+     * @param socket
+     *            a socket connected to the server, closed when done
+     * @param args
+     *            if null, a stop request is sent
+     * @return the exit code sent by the server
+     *
+     * @since 0.1.0
+     */
+    private static int forward(Socket socket, Properties serverProps, String[] args) throws IOException {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            out.writeUTF(serverProps.getProperty(DiverCliServer.TOKEN_PROPERTY, ""));
+            out.writeUTF(workingDir());
+            if (args == null) {
+                out.writeInt(DiverCliServer.STOP_REQUEST);
+            } else {
+                out.writeInt(args.length);
+                for (String arg : args) {
+                    out.writeUTF(arg);
+                }
+            }
+            out.flush();
+
+            while (true) {
+                byte frame = in.readByte();
+                switch (frame) {
+                case DiverCliServer.OUT_FRAME:
+                    System.out.println(readLine(in));
+                    break;
+                case DiverCliServer.ERR_FRAME:
+                    System.err.println(readLine(in));
+                    break;
+                case DiverCliServer.EXIT_FRAME:
+                    return in.readInt();
+                default:
+                    throw new IOException("Unknown frame from server: " + frame);
+                }
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static String readLine(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The directory relative file arguments are resolved against by the
+     * server.
+     *
+     * @since 0.1.0
+     */
+    private static String workingDir() {
+        // mirrors DiverCli testing setup, see readServerFile()
+        if (System.getProperty(DiverCli.SYSTEM_PROPERTY_TESTING) == null) {
+            return new File(System.getProperty("user.dir")).getAbsolutePath();
+        } else {
+            return new File(System.getProperty(DiverCli.SYSTEM_PROPERTY_WORKING_DIR)).getAbsolutePath();
+        }
+    }
+
+    /**
+     * Returns the properties published by a running server, or null if there
+     * is no server.
+     *
+     * @since 0.1.0
+     */
+    private static Properties readServerFile() {
+
+        File globalConfDir;
+        // mirrors DiverCli.globalConfDirPath(), which we can't call without initializing logging
+        if (System.getProperty(DiverCli.SYSTEM_PROPERTY_TESTING) == null) {
+            globalConfDir = new File(System.getProperty("user.home"), DiverCli.GLOBAL_CONF_DIR);
+        } else {
+            globalConfDir = new File(System.getProperty(DiverCli.SYSTEM_PROPERTY_USER_HOME),
+                    DiverCli.GLOBAL_CONF_DIR);
+        }
+
+        File serverFile = new File(globalConfDir, DiverCliServer.SERVER_FILENAME);
+        if (!serverFile.isFile()) {
+            return null;
+        }
+
+        Properties props = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(serverFile);
+            props.load(is);
+        } catch (IOException ex) {
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ex) {
+                    // nothing to do
+                }
+            }
+        }
+        if (props.getProperty(DiverCliServer.PORT_PROPERTY) == null) {
+            return null;
+        }
+        return props;
+    }
+
+    /**
+     * Same as DiverCli exit.
+     *
+     * @since 0.1.0
+     */
+    private static void exit(int code) {
+        if (Boolean.parseBoolean(System.getProperty(DiverCli.SYSTEM_PROPERTY_TESTING))) {
+            throw new DiverCliTerminatedException(code);
+        } else {
+            System.exit(code);
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package eu.kidf.diversicon.cli;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.commands.HelpCommand;
+import eu.kidf.diversicon.cli.commands.ValidateCommand;
+
+/**
+ * Entry point offering only the commands which don't need a database, meant
+ * to be compiled into a native executable with the {@code native} Maven
+ * profile.
+ *
+ * <p>
+ * NOTE: db commands are never instantiated, but Hibernate, H2 and UBY are
+ * still reachable (i.e. through the {@code DivConfig} built by
+ * {@link DiverCli}, {@link DiverCli#disconnect()} and {@code Diversicons}
+ * validation helpers), so they end up in the image anyway. The gain is in
+ * startup time, not in image size.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+public final class DiverCliLite {
+
+    /**
+     * @since 0.1.0
+     */
+    public static final String CMD = "divercli-lite";
+
+    /**
+     * @since 0.1.0
+     */
+    public static final List<String> COMMANDS = Collections.unmodifiableList(
+            Arrays.asList(HelpCommand.CMD, ValidateCommand.CMD));
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiverCliLite.class);
+
+    private DiverCliLite() {
+    }
+
+    /**
+     * Entry point when program is run.
+     *
+     * @since 0.1.0
+     */
+    public static void main(String... args) {
+
+        String cmdName = DiverCli.findCommandName(args);
+
+        if (cmdName != null && !COMMANDS.contains(cmdName) && DiverCli.commandNames()
+                                                                      .contains(cmdName)) {
+            LOG.error("");
+            LOG.error("Command '" + cmdName + "' is not available in " + CMD + ", please use " + DiverCli.CMD);
+            DiverCli.exit(1);
+            return;
+        }
+
+        DiverCli cli = DiverCli.of(args);
+        cli.restrictCommands(COMMANDS);
+        DiverCli.runOrExit(cli);
+    }
+}
@@ -0,0 +1,407 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+
+/**
+ * Keeps a configured {@link DiverCli} with its open connection for each
+ * project and runs on it commands received from {@link DiverCliClient} over
+ * loopback, so clients don't pay JVM and Hibernate bootstrap at each call.
+ *
+ * <p>
+ * Requests are served one at a time, in the order they arrive. Output of each
+ * command is streamed back to the client which issued it. Clients not
+ * sending their request within {@link #HANDSHAKE_TIMEOUT} are dropped.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+public class DiverCliServer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiverCliServer.class);
+
+    /**
+     * File in global configuration dir where a running server publishes its
+     * port and access token.
+     *
+     * @since 0.1.0
+     */
+    public static final String SERVER_FILENAME = "server.properties";
+
+    /**
+     * @since 0.1.0
+     */
+    public static final String PORT_PROPERTY = "port";
+
+    /**
+     * @since 0.1.0
+     */
+    public static final String TOKEN_PROPERTY = "token";
+
+    /**
+     * Sent by clients instead of argument count to ask the server to quit.
+     *
+     * @since 0.1.0
+     */
+    static final int STOP_REQUEST = -1;
+
+    /**
+     * Response frame holding a line for standard output
+     *
+     * @since 0.1.0
+     */
+    static final byte OUT_FRAME = 1;
+
+    /**
+     * Response frame holding a line for standard error
+     *
+     * @since 0.1.0
+     */
+    static final byte ERR_FRAME = 2;
+
+    /**
+     * Last response frame, holding the exit code of the command
+     *
+     * @since 0.1.0
+     */
+    static final byte EXIT_FRAME = 3;
+
+    /**
+     * Milliseconds a client has to send token and arguments, so a client
+     * sending nothing can't hold the server.
+     *
+     * @since 0.1.0
+     */
+    static final int HANDSHAKE_TIMEOUT = 10000;
+
+    private int port;
+
+    private File serverFile;
+
+    private String token;
+
+    private Map<String, DiverCli> clis;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param port
+     *            the loopback port to listen to. If 0 a free port is picked.
+     * @param serverFile
+     *            where to publish port and access token of the server
+     *
+     * @since 0.1.0
+     */
+    public DiverCliServer(int port, File serverFile) {
+        checkArgument(port >= 0, "Invalid port: " + port);
+        this.port = port;
+        this.serverFile = serverFile;
+        this.clis = new HashMap<>();
+        this.token = new BigInteger(130, new SecureRandom()).toString(32);
+    }
+
+    /**
+     * Serves requests until a client asks to stop or the JVM is shut down.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    public void serve() {
+
+        ServerSocket serverSocket;
+        try {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't open server socket on port " + port, ex);
+        }
+
+        Thread shutdownHook = new Thread() {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        };
+
+        try {
+            publish(serverSocket.getLocalPort());
+            Runtime.getRuntime()
+                   .addShutdownHook(shutdownHook);
+
+            LOG.info("Serving " + DiverCli.CMD + " commands on port " + serverSocket.getLocalPort());
+            LOG.info("Stop the server with Ctrl-C or with   " + DiverCliClient.CMD + " "
+                    + DiverCliClient.STOP_OPTION);
+            LOG.info("");
+
+            while (!stopped) {
+                Socket socket = serverSocket.accept();
+                try {
+                    handle(socket);
+                } catch (SocketTimeoutException ex) {
+                    LOG.error("Dropped client which didn't send its request within " + HANDSHAKE_TIMEOUT + " ms.");
+                } catch (IOException ex) {
+                    LOG.error("Error while serving client request: " + ex.getMessage());
+                } finally {
+                    try {
+                        socket.close();
+                    } catch (IOException ex) {
+                        LOG.debug("Couldn't close client socket!", ex);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Error while serving requests!", ex);
+        } finally {
+            try {
+                serverSocket.close();
+            } catch (IOException ex) {
+                LOG.error("Couldn't close server socket!", ex);
+            }
+            shutdown();
+            try {
+                Runtime.getRuntime()
+                       .removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ex) {
+                // JVM is already shutting down
+            }
+        }
+    }
+
+    /**
+     * Writes server file readable only by the owner
+     *
+     * @since 0.1.0
+     */
+    private void publish(int localPort) {
+        Properties props = new Properties();
+        props.setProperty(PORT_PROPERTY, Integer.toString(localPort));
+        props.setProperty(TOKEN_PROPERTY, token);
+
+        FileOutputStream fos = null;
+        try {
+            serverFile.delete();
+            serverFile.createNewFile();
+            serverFile.setReadable(false, false);
+            serverFile.setWritable(false, false);
+            serverFile.setReadable(true, true);
+            serverFile.setWritable(true, true);
+            fos = new FileOutputStream(serverFile);
+            props.store(fos, DiverCli.CMD + " server");
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't write server file " + serverFile.getAbsolutePath(), ex);
+        } finally {
+            if (fos != null) {
+                try {
+                    fos.close();
+                } catch (IOException ex) {
+                    LOG.error("Couldn't close server file!", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all connections and removes the server file. Can be safely
+     * called more than once.
+     *
+     * @since 0.1.0
+     */
+    private synchronized void shutdown() {
+        stopped = true;
+        for (DiverCli cli : clis.values()) {
+            try {
+                cli.disconnect();
+            } catch (Exception ex) {
+                LOG.error("Error while disconnecting project " + cli.getProjectDir(), ex);
+            }
+        }
+        clis.clear();
+        if (serverFile.exists()) {
+            serverFile.delete();
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private synchronized void handle(Socket socket) throws IOException {
+
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (!token.equals(in.readUTF())) {
+            LOG.error("Rejected client request with invalid token!");
+            writeLine(out, ERR_FRAME, "ERROR: " + DiverCli.CMD + " server rejected the request, access token is"
+                    + " invalid! If the server was restarted try again, otherwise stop it with   "
+                    + DiverCliClient.CMD + " " + DiverCliClient.STOP_OPTION);
+            writeExit(out, 1);
+            return;
+        }
+
+        String workingDir = in.readUTF();
+        int argc = in.readInt();
+
+        if (argc == STOP_REQUEST) {
+            LOG.info("Received stop request.");
+            stopped = true;
+            writeExit(out, 0);
+            return;
+        }
+
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < argc; i++) {
+            args.add(in.readUTF());
+        }
+        // commands may run for hours and read nothing more
+        socket.setSoTimeout(0);
+
+        String projectDir = resolveProject(args, workingDir);
+
+        LOG.debug("Serving request for project " + projectDir + ": " + args);
+
+        ch.qos.logback.classic.Logger rootLogger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(
+                org.slf4j.Logger.ROOT_LOGGER_NAME);
+        ClientAppender appender = new ClientAppender(out);
+        appender.setContext(rootLogger.getLoggerContext());
+        appender.start();
+        rootLogger.addAppender(appender);
+
+        DiverCli cli = clis.get(projectDir);
+        if (cli == null) {
+            cli = DiverCli.of();
+            clis.put(projectDir, cli);
+        }
+
+        int code;
+        try {
+            cli.setWorkingDir(new File(workingDir));
+            code = cli.tryExecute(args.toArray(new String[args.size()]));
+        } finally {
+            cli.setWorkingDir(null);
+            rootLogger.detachAppender(appender);
+            appender.stop();
+        }
+
+        writeExit(out, code);
+    }
+
+    /**
+     * Makes the {@link MainCommand#PRJ_OPTION} in {@code args} absolute with
+     * respect to client {@code workingDir}, adding it if missing. Other file
+     * arguments are resolved by commands with {@link DiverCli#resolvePath(String)}.
+     *
+     * @return the canonical path of the project
+     *
+     * @since 0.1.0
+     */
+    private static String resolveProject(List<String> args, String workingDir) {
+        int i = args.indexOf(MainCommand.PRJ_OPTION);
+        File prj;
+        if (i == -1 || i == args.size() - 1) {
+            prj = new File(workingDir);
+            args.add(0, MainCommand.PRJ_OPTION);
+            args.add(1, prj.getAbsolutePath());
+        } else {
+            prj = new File(args.get(i + 1));
+            if (!prj.isAbsolute()) {
+                prj = new File(workingDir, args.get(i + 1));
+            }
+            args.set(i + 1, prj.getAbsolutePath());
+        }
+        try {
+            return prj.getCanonicalPath();
+        } catch (IOException ex) {
+            throw new DiverCliException("Invalid project dir: " + prj.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static void writeExit(DataOutputStream out, int code) throws IOException {
+        out.writeByte(EXIT_FRAME);
+        out.writeInt(code);
+        out.flush();
+    }
+
+    /**
+     * Forwards user output to the client, formatted like console appenders in
+     * {@code logback.xml}
+     *
+     * @since 0.1.0
+     */
+    private static class ClientAppender extends AppenderBase<ILoggingEvent> {
+
+        private DataOutputStream out;
+
+        ClientAppender(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            Level level = event.getLevel();
+            if (!level.isGreaterOrEqual(Level.INFO)) {
+                return;
+            }
+            String line;
+            byte frame;
+            if (Level.ERROR.equals(level)) {
+                frame = ERR_FRAME;
+                line = level + ": " + event.getFormattedMessage();
+            } else if (Level.WARN.equals(level)) {
+                frame = OUT_FRAME;
+                line = "WARNING: " + event.getFormattedMessage();
+            } else {
+                frame = OUT_FRAME;
+                line = event.getFormattedMessage();
+            }
+            try {
+                writeLine(out, frame, line);
+            } catch (IOException ex) {
+                // client went away, nothing we can do about it
+                addError("Couldn't forward log to client!", ex);
+            }
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    static void writeLine(DataOutputStream out, byte frame, String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(frame);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+}
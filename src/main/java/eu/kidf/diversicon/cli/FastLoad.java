@@ -0,0 +1,180 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.lmf.transform.DBConfig;
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+
+/**
+ * Reduced durability H2 settings for loading databases which can always be
+ * rebuilt from scratch: no transaction log, no undo log and a bigger cache.
+ * Table locking stays on, as the importer may open more than one connection.
+ * A crash while they are active may corrupt the database.
+ *
+ * <p>
+ * Settings are appended to the jdbc url, so they apply to every connection
+ * opened during the load, including the ones opened by the importer itself.
+ * Lock mode and cache size are persisted by H2 in the db file, so
+ * {@link #restore(DBConfig)} puts them back to H2 defaults, unless the
+ * original url sets them, and then compacts the database.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+final class FastLoad {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FastLoad.class);
+
+    /**
+     * H2 defaults of the persistent settings changed for fast loading
+     */
+    private static final Map<String, String> H2_DEFAULTS;
+
+    static {
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put("LOCK_MODE", "3");
+        m.put("CACHE_SIZE", "16384");
+        H2_DEFAULTS = m;
+    }
+
+    private FastLoad() {
+    }
+
+    /**
+     * Returns a copy of {@code dbConfig} with fast load settings in the jdbc
+     * url.
+     *
+     * @since 0.1.0
+     */
+    static DBConfig config(DBConfig dbConfig) {
+        checkNotNull(dbConfig);
+
+        // a tenth of the heap, the importer needs the rest
+        long cacheKb = Math.max(16384, Runtime.getRuntime()
+                                              .maxMemory()
+                / 10 / 1024);
+
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("LOG", "0");
+        settings.put("UNDO_LOG", "0");
+        // without locks connections of the importer could see half written rows
+        settings.put("LOCK_MODE", "3");
+        settings.put("CACHE_SIZE", Long.toString(cacheKb));
+
+        DBConfig ret = copy(dbConfig);
+        ret.setJdbc_url(withSettings(dbConfig.getJdbc_url(), settings));
+        return ret;
+    }
+
+    /**
+     * Puts back persistent settings changed by {@link #config(DBConfig)},
+     * syncs everything to disk and compacts the database. Must be called
+     * once all the connections of the load are closed.
+     *
+     * @param dbConfig
+     *            the original config, without fast load settings.
+     *
+     * @throws DiverCliException
+     *
+     * @since 0.1.0
+     */
+    static void restore(DBConfig dbConfig) {
+        checkNotNull(dbConfig);
+        String url = dbConfig.getJdbc_url();
+        long start = System.nanoTime();
+        try {
+            Class.forName(dbConfig.getJdbc_driver_class());
+        } catch (ClassNotFoundException ex) {
+            throw new DiverCliException("Couldn't load jdbc driver " + dbConfig.getJdbc_driver_class(), ex);
+        }
+        try (Connection conn = DriverManager.getConnection(url, dbConfig.getUser(), dbConfig.getPassword());
+                Statement st = conn.createStatement()) {
+            for (Map.Entry<String, String> entry : H2_DEFAULTS.entrySet()) {
+                // settings in the url are applied again on each connection
+                if (!hasSetting(url, entry.getKey())) {
+                    st.execute("SET " + entry.getKey() + " " + entry.getValue());
+                }
+            }
+            st.execute("CHECKPOINT SYNC");
+            if (url.startsWith("jdbc:h2:file:")) {
+                st.execute("SHUTDOWN COMPACT");
+            }
+        } catch (SQLException ex) {
+            throw new DiverCliException("Couldn't restore safe settings after fast load of " + url
+                    + ", if in doubt rebuild the database!", ex);
+        }
+        LOG.debug("Restored safe settings after fast load in " + DiverCli.formatElapsed(System.nanoTime() - start));
+    }
+
+    /**
+     * Returns {@code jdbcUrl} with given {@code settings}, replacing the ones
+     * already present in it as H2 refuses duplicates.
+     *
+     * @since 0.1.0
+     */
+    static String withSettings(String jdbcUrl, Map<String, String> settings) {
+        String[] parts = jdbcUrl.split(";");
+        StringBuilder sb = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            if (!parts[i].isEmpty() && !settings.containsKey(settingName(parts[i]))) {
+                sb.append(';')
+                  .append(parts[i]);
+            }
+        }
+        for (Map.Entry<String, String> entry : settings.entrySet()) {
+            sb.append(';')
+              .append(entry.getKey())
+              .append('=')
+              .append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static boolean hasSetting(String jdbcUrl, String name) {
+        String[] parts = jdbcUrl.split(";");
+        for (int i = 1; i < parts.length; i++) {
+            if (name.equals(settingName(parts[i]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static String settingName(String urlPart) {
+        int eq = urlPart.indexOf('=');
+        return (eq < 0 ? urlPart : urlPart.substring(0, eq)).trim()
+                                                             .toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static DBConfig copy(DBConfig dbConfig) {
+        DBConfig ret = new DBConfig();
+        ret.setHost(dbConfig.getHost());
+        ret.setDb_vendor(dbConfig.getDb_vendor());
+        ret.setJdbc_driver_class(dbConfig.getJdbc_driver_class());
+        ret.setJdbc_url(dbConfig.getJdbc_url());
+        ret.setUser(dbConfig.getUser());
+        ret.setPassword(dbConfig.getPassword());
+        ret.setShowSQL(dbConfig.isShowSQL());
+        return ret;
+    }
+}
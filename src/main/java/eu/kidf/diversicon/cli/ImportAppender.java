@@ -1,7 +1,19 @@
 package eu.kidf.diversicon.cli;
 
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
 import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,6 +27,13 @@ import eu.kidf.diversicon.core.LogMessage;
 /**
  * Custom logback appender to insert import log into the database.
  * 
+ * <p>
+ * Messages coming from the same template, like a missing reference warning
+ * repeated with different ids, are stored only once per job: later
+ * occurrences are counted, and at the end a single summary with the count
+ * and a few sample arguments is added to the job by {@link #saveSummaries()}.
+ * </p>
+ * 
  * @since 0.1.0
  *
  */
@@ -22,15 +41,90 @@ public class ImportAppender extends AppenderBase<ILoggingEvent> {
     
     private static final Logger LOG = LoggerFactory.getLogger(ImportAppender.class);
 
+    /**
+     * Default maximum number of distinct messages stored for each import job
+     * 
+     * @since 0.1.0
+     */
+    public static final int DEFAULT_MAX_STORED = 1000;
+
+    /**
+     * Maximum number of sample arguments kept for repeated messages
+     * 
+     * @since 0.1.0
+     */
+    public static final int MAX_SAMPLES = 3;
+
     private Diversicon diversicon;
     
     /**
+     * The thread using the db session, the only one whose logs can go to the db.
+     */
+    private Thread importThread;
+
+    private int maxStored;
+
+    /**
+     * Messages of each job not yet summarized. Jobs are compared by identity,
+     * as they may lack an id while running.
+     */
+    private Map<ImportJob, JobMessages> jobs;
+
+    /**
+     * Messages logged during a job, grouped by template
+     * 
+     * @since 0.1.0
+     */
+    private static class JobMessages {
+
+        private Map<String, Template> templates = new LinkedHashMap<>();
+
+        private int dropped;
+    }
+
+    /**
+     * Occurrences of a message template
+     * 
+     * @since 0.1.0
+     */
+    private static class Template {
+
+        private org.slf4j.event.Level level;
+
+        private String pattern;
+
+        private int repeated;
+
+        private List<String> samples = new ArrayList<>();
+    }
+    
+    /**
+     * Stores up to {@link #DEFAULT_MAX_STORED} messages for each job.
+     * 
      * @since 0.1.0
      */
     public ImportAppender (Diversicon diversicon) {
+        this(diversicon, DEFAULT_MAX_STORED);
+    }
+
+    /**
+     * Only logs from the current thread will be stored, as the db session
+     * can't be shared among threads.
+     * 
+     * @param maxStored
+     *            maximum number of distinct messages to store in each job,
+     *            further ones are only counted.
+     * 
+     * @since 0.1.0
+     */
+    public ImportAppender (Diversicon diversicon, int maxStored) {
         checkNotNull(diversicon);
+        checkArgument(maxStored >= 0, "Max stored messages can't be negative, found instead " + maxStored);
         
         this.diversicon = diversicon;
+        this.importThread = Thread.currentThread();
+        this.maxStored = maxStored;
+        this.jobs = new IdentityHashMap<>();
         start();
     }
 
@@ -40,6 +134,16 @@ public class ImportAppender extends AppenderBase<ILoggingEvent> {
      */
     public void append(ILoggingEvent event) {
         
+        // logs from other threads, like prefetching ones, are not relative to the job
+        if (Thread.currentThread() != importThread){
+            return;
+        }
+
+        // cheapest check first, most events are below warning 
+        if (!event.getLevel().isGreaterOrEqual(Level.WARN)){
+            return;
+        }
+        
         // check log is relative to an import job 
         // Remember validation errors prevent an ImportJob from even starting !
         
@@ -53,7 +157,6 @@ public class ImportAppender extends AppenderBase<ILoggingEvent> {
             return;
         }
  
-        
         org.slf4j.event.Level slf4jLevel = null;
         try {
             slf4jLevel = org.slf4j.event.Level.valueOf(event.getLevel().toString());
@@ -61,10 +164,150 @@ public class ImportAppender extends AppenderBase<ILoggingEvent> {
             LOG.error("Couldn't convert from logback to slf4j format level, skipping append log into db!", ex);
         }
             
-        if (slf4jLevel != null                
-                && event.getLevel().isGreaterOrEqual(Level.WARN)){
-            importJob.addLogMessage(new LogMessage(importJob, slf4jLevel, event.getFormattedMessage()));
+        if (slf4jLevel != null){
+            String pattern = event.getMessage() == null ? event.getFormattedMessage() : event.getMessage();
+            store(importJob, slf4jLevel, pattern, event.getFormattedMessage(), event.getArgumentArray());
         }            
                  
     }
-  }
\ No newline at end of file
+
+    /**
+     * Adds a message to {@code importJob} the first time its {@code pattern}
+     * is met, later on only counts it.
+     * 
+     * @param arguments
+     *            the arguments of {@code pattern}, kept as samples of
+     *            repeated messages
+     * 
+     * @since 0.1.0
+     */
+    void store(ImportJob importJob, org.slf4j.event.Level level, String pattern, String formattedMessage,
+            @Nullable Object[] arguments) {
+        JobMessages messages = jobs.get(importJob);
+        if (messages == null) {
+            messages = new JobMessages();
+            jobs.put(importJob, messages);
+        }
+
+        String key = level + " " + pattern;
+        Template template = messages.templates.get(key);
+        if (template != null) {
+            template.repeated += 1;
+            if (template.samples.size() < MAX_SAMPLES && arguments != null) {
+                template.samples.add(Arrays.toString(arguments));
+            }
+        } else if (messages.templates.size() < maxStored) {
+            template = new Template();
+            template.level = level;
+            template.pattern = pattern;
+            messages.templates.put(key, template);
+            importJob.addLogMessage(new LogMessage(importJob, level, formattedMessage));
+        } else {
+            messages.dropped += 1;
+        }
+    }
+
+    /**
+     * Returns the number of messages dropped so far because of the limit and
+     * not yet recorded with {@link #saveSummaries()}
+     * 
+     * @since 0.1.0
+     */
+    public int getDropped() {
+        int ret = 0;
+        for (JobMessages messages : jobs.values()) {
+            ret += messages.dropped;
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the number of repetitions of already stored messages not yet
+     * recorded with {@link #saveSummaries()}
+     * 
+     * @since 0.1.0
+     */
+    public int getRepeated() {
+        int ret = 0;
+        for (JobMessages messages : jobs.values()) {
+            for (Template template : messages.templates.values()) {
+                ret += template.repeated;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Records in each import job a summary for each repeated message, and how
+     * many messages were dropped because of the limit. Call it once jobs are
+     * written to the db, that is after
+     * {@link Diversicon#importFiles(eu.kidf.diversicon.core.ImportConfig)}
+     * returns. Failures are only logged.
+     * 
+     * @since 0.1.0
+     */
+    public void saveSummaries() {
+        if (getDropped() == 0 && getRepeated() == 0) {
+            jobs.clear();
+            return;
+        }
+        Session session = diversicon.getSession();
+        Transaction tx = session.beginTransaction();
+        try {
+            for (Map.Entry<ImportJob, JobMessages> entry : jobs.entrySet()) {
+                ImportJob job = diversicon.getImportJob(entry.getKey()
+                                                             .getId());
+                JobMessages messages = entry.getValue();
+                for (Template template : messages.templates.values()) {
+                    if (template.repeated > 0) {
+                        job.addLogMessage(new LogMessage(job, template.level, summary(template)));
+                    }
+                }
+                if (messages.dropped > 0) {
+                    job.addLogMessage(new LogMessage(job, org.slf4j.event.Level.WARN, "Dropped "
+                            + messages.dropped + " more log messages, only the first " + maxStored
+                            + " distinct ones were stored."));
+                }
+                session.saveOrUpdate(job);
+            }
+            tx.commit();
+        } catch (RuntimeException ex) {
+            tx.rollback();
+            LOG.error("Couldn't record summaries of " + (getRepeated() + getDropped())
+                    + " log messages in import jobs!", ex);
+        }
+        jobs.clear();
+    }
+
+    /**
+     * Forgets messages without summarizing them, for jobs which are not
+     * written to the db.
+     * 
+     * @since 0.1.0
+     */
+    public void clearSummaries() {
+        jobs.clear();
+    }
+
+    /**
+     * Returns a message like
+     * {@code Repeated 1234 more times: Missing reference {} ..., e.g. [a], [b]}
+     * 
+     * @since 0.1.0
+     */
+    private static String summary(Template template) {
+        StringBuilder sb = new StringBuilder("Repeated ").append(template.repeated)
+                                                         .append(" more times: ")
+                                                         .append(template.pattern);
+        if (!template.samples.isEmpty()) {
+            sb.append(", e.g. ");
+            for (int i = 0; i < template.samples.size(); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(template.samples.get(i));
+            }
+        }
+        return sb.toString();
+    }
+  }
@@ -4,6 +4,9 @@ import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +44,25 @@ public class MainCommand implements DiverCliCommand {
      */    
     public static final String HTTP_PROXY_OPTION = "--http-proxy";
     
+    /**
+     * @since 0.1.0
+     */    
+    public static final String HELP_OPTION = "--help";
+    
+    /**
+     * @since 0.1.0
+     */    
+    public static final String PROFILE_STARTUP_OPTION = "--profile-startup";
+    
+    /**
+     * Options taking a value, needed to spot the command name in arguments 
+     * without parsing them.
+     * 
+     * @since 0.1.0
+     */
+    static final List<String> VALUE_OPTIONS = Collections.unmodifiableList(
+            Arrays.asList(PRJ_OPTION, TIMEOUT_OPTION, HTTP_PROXY_OPTION));
+    
     // Notice we can't make a command out of this as global configuration must happen 
     // before commands are executed.  
     public static final String RESET_GLOBAL_CONFIG_OPTION =  "--reset-global-config" ;
@@ -68,12 +90,17 @@ public class MainCommand implements DiverCliCommand {
     private String httpProxy;
     
     
-    @Parameter(names = "--help", help = true)
+    @Parameter(names = HELP_OPTION, help = true)
     private boolean help = false;
 
     @Parameter(names = "--debug", hidden = true)
     private boolean debug = false;
 
+    // DiverCli spots it before parsing, the field is only here for parsing and usage
+    @Parameter(names = PROFILE_STARTUP_OPTION, description = "At the end prints as a JSON line wall time"
+            + " and allocated bytes of each phase of the execution.")
+    private boolean profileStartup = false;
+
     @Parameter(names = {RESET_GLOBAL_CONFIG_OPTION }, description = "Resets the configuration in USER_DIR/"
             + DiverCli.GLOBAL_CONF_DIR)
     private boolean resetGlobalConf = false;
@@ -105,7 +132,9 @@ public class MainCommand implements DiverCliCommand {
         if (resetGlobalConf) {
             LOG.info("");
             LOG.info("Resetting user configuration at " + cli.globalConfDir + "   ...");
-            cli.resetGlobalConfDir();
+            try (StartupProfiler.Phase p = cli.profiler.phase("resetGlobalConfDir")) {
+                cli.resetGlobalConfDir();
+            }
             LOG.info("Done.");
             LOG.info("");
         } else {
@@ -114,18 +143,25 @@ public class MainCommand implements DiverCliCommand {
                 && cli.globalConfDir.isDirectory()
                 && cli.globalConfDir.list().length != 0)) {
                 LOG.info("Found no global configuration, creating it at " + cli.globalConfDir.getAbsolutePath() + " ...");
-                cli.resetGlobalConfDir();                
+                try (StartupProfiler.Phase p = cli.profiler.phase("resetGlobalConfDir")) {
+                    cli.resetGlobalConfDir();
+                }
             }            
         }
 
         DiverCli.checkGlobalConfDir(cli.globalConfDir);
 
-        try {
-            cli.globalConfIni = cli.loadIni(new File(cli.globalConfDir, DiverCli.INI_FILENAME));
-        } catch (Exception ex) {
-            throw new DiverCliException(cli.globalConfigIsCorruptedMessage(), ex);
+        // when many commands are executed by the same cli we read global config only once 
+        if (!cli.globallyConfigured || resetGlobalConf) {
+            try (StartupProfiler.Phase p = cli.profiler.phase("loadIni.global")) {
+                cli.globalConfIni = cli.loadIni(new File(cli.globalConfDir, DiverCli.INI_FILENAME));
+            } catch (Exception ex) {
+                throw new DiverCliException(cli.globalConfigIsCorruptedMessage(), ex);
+            }
         }
 
+        File previousProjectDir = cli.projectDir;
+        
         if (Internals.isBlank(projectDirParam)) {
             cli.projectDir =  new File(System.getProperty("user.dir"));
         } else {            
@@ -137,6 +173,14 @@ public class MainCommand implements DiverCliCommand {
         }
 
         cli.fixConfigIfTesting();
+        
+        if (cli.projectConfigured 
+                && (resetGlobalConf
+                    || !cli.projectDir.getAbsoluteFile().equals(previousProjectDir.getAbsoluteFile()))) {
+            LOG.debug("Configuration changed, going to reload project configuration.");
+            cli.disconnect();
+            cli.projectConfigured = false;
+        }
 
         checkGlobalConfig();
         
@@ -208,7 +252,7 @@ public class MainCommand implements DiverCliCommand {
     public boolean isHelp() {
         return help;
     }
-    
+
     
     
     
@@ -0,0 +1,154 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.lmf.transform.DBConfig;
+import eu.kidf.diversicon.core.BuildInfo;
+import eu.kidf.diversicon.core.Diversicon;
+
+/**
+ * Identifies the state of an H2 file database right after DiverCli last
+ * closed it, when the schema was known to be initialized. If the fingerprint
+ * still matches at next connection, the database can't have been emptied or
+ * replaced in the meanwhile, so checking for emptiness can be skipped.
+ *
+ * @since 0.1.0
+ */
+final class SchemaFingerprint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaFingerprint.class);
+
+    /**
+     * Fingerprint file name, stored in project dir.
+     *
+     * @since 0.1.0
+     */
+    static final String FILENAME = DiverCli.CMD + "-schema.properties";
+
+    private static final String H2_FILE_PREFIX = "jdbc:h2:file:";
+
+    /**
+     * Extensions of H2 storage files, for PageStore and MVStore
+     */
+    private static final String[] H2_EXTENSIONS = { ".h2.db", ".mv.db" };
+
+    private Properties props;
+
+    private SchemaFingerprint(Properties props) {
+        this.props = props;
+    }
+
+    /**
+     * Computes the fingerprint of the database as it is now on disk.
+     *
+     * @return null if database is not an H2 file db or its file doesn't
+     *         exist yet
+     *
+     * @since 0.1.0
+     */
+    @Nullable
+    static SchemaFingerprint of(DBConfig dbConfig) {
+        checkNotNull(dbConfig);
+
+        File dbFile = h2DbFile(dbConfig.getJdbc_url());
+        if (dbFile == null) {
+            return null;
+        }
+
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(dbFile.toPath(), BasicFileAttributes.class);
+        } catch (IOException ex) {
+            LOG.debug("Couldn't read attributes of db file " + dbFile.getAbsolutePath(), ex);
+            return null;
+        }
+
+        Properties props = new Properties();
+        props.setProperty("diversicon.version", String.valueOf(BuildInfo.of(Diversicon.class)
+                                                                         .getVersion()));
+        props.setProperty("jdbc.url", dbConfig.getJdbc_url());
+        props.setProperty("db.file", dbFile.getAbsolutePath());
+        props.setProperty("db.fileKey", String.valueOf(attrs.fileKey()));
+        props.setProperty("db.size", Long.toString(attrs.size()));
+        props.setProperty("db.lastModified", Long.toString(attrs.lastModifiedTime()
+                                                                 .toMillis()));
+        return new SchemaFingerprint(props);
+    }
+
+    /**
+     * Returns the storage file of an H2 file database, or null if the url is
+     * not for such a db or the file doesn't exist.
+     *
+     * @since 0.1.0
+     */
+    @Nullable
+    static File h2DbFile(@Nullable String jdbcUrl) {
+        if (jdbcUrl == null || !jdbcUrl.startsWith(H2_FILE_PREFIX)) {
+            return null;
+        }
+        String path;
+        int i = jdbcUrl.indexOf(";");
+        if (i >= 0) {
+            path = jdbcUrl.substring(H2_FILE_PREFIX.length(), i);
+        } else {
+            path = jdbcUrl.substring(H2_FILE_PREFIX.length());
+        }
+        for (String ext : H2_EXTENSIONS) {
+            File candidate = new File(path + ext);
+            if (candidate.isFile()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if {@code fingerprintFile} exists and holds this same
+     * fingerprint.
+     *
+     * @since 0.1.0
+     */
+    boolean matches(File fingerprintFile) {
+        if (!fingerprintFile.isFile()) {
+            return false;
+        }
+        Properties stored = new Properties();
+        try (InputStream is = new FileInputStream(fingerprintFile)) {
+            stored.load(is);
+        } catch (IOException ex) {
+            LOG.debug("Couldn't read schema fingerprint " + fingerprintFile.getAbsolutePath(), ex);
+            return false;
+        }
+        return props.equals(stored);
+    }
+
+    /**
+     * Stores the fingerprint into {@code fingerprintFile}. Failures are
+     * only logged, as the fingerprint is just an optimization.
+     *
+     * @since 0.1.0
+     */
+    void write(File fingerprintFile) {
+        try (OutputStream os = new FileOutputStream(fingerprintFile)) {
+            props.store(os, "Written by " + DiverCli.CMD + " on disconnect, delete it if in doubt.");
+        } catch (IOException ex) {
+            LOG.debug("Couldn't write schema fingerprint " + fingerprintFile.getAbsolutePath(), ex);
+            fingerprintFile.delete();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotEmpty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records wall time and bytes allocated by current thread in the phases of a
+ * command execution, to be reported as a single line of JSON.
+ *
+ * <p>
+ * Phases are meant to be used with try-with-resources:
+ * </p>
+ *
+ * <pre>
+ * try (StartupProfiler.Phase p = profiler.phase("configureProject")) {
+ *     configureProject();
+ * }
+ * </pre>
+ *
+ * Phases may nest, in the report they are listed in the order they started.
+ *
+ * @since 0.1.0
+ */
+final class StartupProfiler {
+
+    /**
+     * Profiler recording nothing
+     *
+     * @since 0.1.0
+     */
+    static final StartupProfiler DISABLED = new StartupProfiler(null);
+
+    private static final Phase NOOP_PHASE = new Phase(DISABLED, "noop", 0, 0);
+
+    private String command;
+
+    private long uptimeAtStartMs;
+
+    private List<Phase> phases;
+
+    /**
+     * @param command
+     *            the command being profiled, if null the profiler is disabled.
+     *
+     * @since 0.1.0
+     */
+    private StartupProfiler(String command) {
+        this.command = command;
+        this.phases = new ArrayList<>();
+        this.uptimeAtStartMs = command == null ? 0 : ManagementFactory.getRuntimeMXBean()
+                                                                       .getUptime();
+    }
+
+    /**
+     * @param command
+     *            the command being profiled, or empty string if none was
+     *            given.
+     *
+     * @since 0.1.0
+     */
+    static StartupProfiler of(String command) {
+        if (command == null) {
+            return new StartupProfiler("");
+        }
+        return new StartupProfiler(command);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    boolean isEnabled() {
+        return command != null;
+    }
+
+    /**
+     * Starts a new phase, which ends when {@link Phase#close()} is called.
+     *
+     * @since 0.1.0
+     */
+    Phase phase(String name) {
+        checkNotEmpty(name, "Invalid phase name!");
+        if (!isEnabled()) {
+            return NOOP_PHASE;
+        }
+        Phase ret = new Phase(this, name, System.nanoTime(), allocatedBytes());
+        phases.add(ret);
+        return ret;
+    }
+
+    /**
+     * Returns bytes allocated so far by current thread, or -1 if the JVM
+     * can't tell.
+     *
+     * @since 0.1.0
+     */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread()
+                                                             .getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the report as a single line JSON object like
+     *
+     * <pre>
+     * {"startupProfile":{"command":"log","jvmUptimeAtStartMs":412,"phases":[
+     *     {"name":"MainCommand.configure","wallMs":35.120,"allocatedBytes":1843200}, ...]}}
+     * </pre>
+     *
+     * Phases which didn't end have {@code wallMs} and {@code allocatedBytes} set
+     * to -1, as well as {@code allocatedBytes} when the JVM can't measure it.
+     *
+     * @since 0.1.0
+     */
+    String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"startupProfile\":{\"command\":")
+          .append(quote(command))
+          .append(",\"jvmUptimeAtStartMs\":")
+          .append(uptimeAtStartMs)
+          .append(",\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":")
+              .append(quote(phase.name))
+              .append(",\"wallMs\":")
+              .append(phase.ended() ? String.format(Locale.ROOT, "%.3f", phase.wallNanos / 1000000.0) : "-1")
+              .append(",\"allocatedBytes\":")
+              .append(phase.allocatedBytes)
+              .append('}');
+        }
+        sb.append("]}}");
+        return sb.toString();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\')
+                  .append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"')
+                 .toString();
+    }
+
+    /**
+     * A timed phase, ends when closed.
+     *
+     * @since 0.1.0
+     */
+    static final class Phase implements AutoCloseable {
+
+        private StartupProfiler profiler;
+        private String name;
+        private long startNanos;
+        private long startAllocatedBytes;
+        private long wallNanos = -1;
+        private long allocatedBytes = -1;
+
+        private Phase(StartupProfiler profiler, String name, long startNanos, long startAllocatedBytes) {
+            this.profiler = profiler;
+            this.name = name;
+            this.startNanos = startNanos;
+            this.startAllocatedBytes = startAllocatedBytes;
+        }
+
+        private boolean ended() {
+            return wallNanos >= 0;
+        }
+
+        /**
+         * Ends the phase, further calls have no effect.
+         *
+         * @since 0.1.0
+         */
+        @Override
+        public void close() {
+            if (!profiler.isEnabled() || ended()) {
+                return;
+            }
+            wallNanos = System.nanoTime() - startNanos;
+            long endAllocatedBytes = allocatedBytes();
+            if (startAllocatedBytes >= 0 && endAllocatedBytes >= 0) {
+                allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+import eu.kidf.diversicon.core.Diversicon;
+
+/**
+ * Last import job and last synset relation present in the db when its graph
+ * was last augmented, stored in project dir. Relations with a greater id were
+ * added afterwards, so they are the only ones an incremental augmentation
+ * needs to look at.
+ *
+ * @since 0.1.0
+ */
+class AugmentWatermark {
+
+    /**
+     * @since 0.1.0
+     */
+    static final String FILENAME = DiverCli.CMD + "-augment.properties";
+
+    private static final String IMPORT_JOB_KEY = "importJob";
+    private static final String RELATION_KEY = "relation";
+
+    private long importJobId;
+
+    private long relationId;
+
+    /**
+     * @since 0.1.0
+     */
+    private AugmentWatermark(long importJobId, long relationId) {
+        this.importJobId = importJobId;
+        this.relationId = relationId;
+    }
+
+    /**
+     * Returns the watermark of the db as it is now, -1 ids meaning there are
+     * no import jobs or relations.
+     *
+     * @since 0.1.0
+     */
+    static AugmentWatermark current(Diversicon diversicon) {
+        checkNotNull(diversicon);
+        return new AugmentWatermark(maxId(diversicon, "ImportJob"), maxId(diversicon, "DivSynsetRelation"));
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static long maxId(Diversicon diversicon, String entity) {
+        Number ret = (Number) diversicon.getSession()
+                                        .createQuery("select max(e.id) from " + entity + " e")
+                                        .uniqueResult();
+        return ret == null ? -1 : ret.longValue();
+    }
+
+    /**
+     * Returns the watermark saved in {@code projectDir}, or null if there is
+     * none.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    @Nullable
+    static AugmentWatermark load(File projectDir) {
+        checkNotNull(projectDir);
+        File file = new File(projectDir, FILENAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.load(is);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't read augment watermark " + file.getAbsolutePath(), ex);
+        }
+        try {
+            return new AugmentWatermark(Long.parseLong(props.getProperty(IMPORT_JOB_KEY)),
+                    Long.parseLong(props.getProperty(RELATION_KEY)));
+        } catch (NumberFormatException ex) {
+            throw new DiverCliIoException("Corrupted augment watermark " + file.getAbsolutePath()
+                    + ", delete it to augment the whole graph", ex);
+        }
+    }
+
+    /**
+     * Deletes the watermark saved in {@code projectDir}, if any.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    static void delete(File projectDir) {
+        File file = new File(projectDir, FILENAME);
+        if (file.exists() && !file.delete()) {
+            throw new DiverCliIoException("Couldn't delete augment watermark " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    long getImportJobId() {
+        return importJobId;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    long getRelationId() {
+        return relationId;
+    }
+
+    /**
+     * Returns true if {@code other} may come from the same db at a later
+     * time, false if for example the db was reset in between.
+     *
+     * @since 0.1.0
+     */
+    boolean precedes(AugmentWatermark other) {
+        return importJobId <= other.importJobId && relationId <= other.relationId;
+    }
+
+    /**
+     * Saves through a temporary file, so the watermark is either complete or
+     * missing.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    void save(File projectDir) {
+        checkNotNull(projectDir);
+        File target = new File(projectDir, FILENAME);
+        File temp = new File(target.getAbsolutePath() + ".tmp");
+        Properties props = new Properties();
+        props.setProperty(IMPORT_JOB_KEY, Long.toString(importJobId));
+        props.setProperty(RELATION_KEY, Long.toString(relationId));
+        try {
+            try (OutputStream os = new FileOutputStream(temp)) {
+                props.store(os, "Db state at last graph augmentation, written by " + DiverCli.CMD);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't save augment watermark " + target.getAbsolutePath(), ex);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+
+/**
+ * Runs a script of commands with the same db connection.
+ *
+ * @since 0.1.0
+ *
+ */
+@Parameters(separators = "=", commandDescription = "Runs the commands listed in a file, one per line, reusing"
+        + " the same db connection. Empty lines and lines starting with '#' are skipped.")
+public class BatchCommand implements DiverCliCommand {
+
+    /**
+     * @since 0.1.0
+     */
+    public static final String CMD = "batch";
+
+    /**
+     * Path to give for reading commands from standard input.
+     *
+     * @since 0.1.0
+     */
+    public static final String STDIN = "-";
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchCommand.class);
+
+    @Parameter(names = { "--keep-going", "-k" }, description = "Continues with the next commands when a command"
+            + " fails. By default the batch stops at the first failure.")
+    private boolean keepGoing = false;
+
+    @Parameter(required = true, arity = 1, description = "The file with the commands to run, or '" + STDIN
+            + "' to read them from standard input")
+    private List<String> scriptPaths = new ArrayList<>();
+
+    private DiverCli diverCli;
+
+    /**
+     * @since 0.1.0
+     */
+    public BatchCommand(DiverCli diverCli) {
+        checkNotNull(diverCli);
+        this.diverCli = diverCli;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void configure() {
+        String path = scriptPaths.get(0);
+        if (!STDIN.equals(path)) {
+            path = diverCli.resolvePath(path);
+            scriptPaths.set(0, path);
+        }
+        if (!STDIN.equals(path) && !new File(path).isFile()) {
+            throw new DiverCliIoException("Can't find batch file " + new File(path).getAbsolutePath());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void run() {
+
+        List<String> lines = readLines(scriptPaths.get(0));
+
+        File projectDir = diverCli.getProjectDir();
+        if (new File(projectDir, DiverCli.INI_FILENAME).exists()) {
+            diverCli.connect();
+        }
+
+        int succeeded = 0;
+        int failed = 0;
+        long batchStart = System.nanoTime();
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i)
+                               .trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            LOG.info("");
+            LOG.info("[" + (i + 1) + "] " + DiverCli.CMD + " " + line);
+
+            long start = System.nanoTime();
+            int code;
+            try {
+                code = diverCli.tryExecute(DiverCli.withProject(DiverCli.splitArgs(line), projectDir));
+            } catch (IllegalArgumentException ex) {
+                LOG.error(ex.getMessage());
+                code = 1;
+            }
+            String elapsed = DiverCli.formatElapsed(System.nanoTime() - start);
+
+            if (code == 0) {
+                succeeded++;
+                LOG.info("[" + (i + 1) + "] Done in " + elapsed);
+            } else {
+                failed++;
+                LOG.info("[" + (i + 1) + "] Failed after " + elapsed);
+                if (!keepGoing) {
+                    logSummary(succeeded, failed, batchStart);
+                    throw new DiverCliException("Batch stopped at line " + (i + 1) + ": " + line);
+                }
+            }
+        }
+
+        logSummary(succeeded, failed, batchStart);
+
+        if (failed > 0) {
+            throw new DiverCliException("There were " + failed + " failed commands in the batch!");
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static void logSummary(int succeeded, int failed, long batchStart) {
+        LOG.info("");
+        LOG.info("Batch ran " + (succeeded + failed) + " commands: " + succeeded + " succeeded, " + failed
+                + " failed, in " + DiverCli.formatElapsed(System.nanoTime() - batchStart));
+    }
+
+    /**
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    private static List<String> readLines(String path) {
+        List<String> ret = new ArrayList<>();
+        InputStream is = null;
+        try {
+            is = STDIN.equals(path) ? System.in : new FileInputStream(path);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ret.add(line);
+            }
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Error while reading batch " + path, ex);
+        } finally {
+            if (is != null && is != System.in) {
+                try {
+                    is.close();
+                } catch (IOException ex) {
+                    LOG.error("Couldn't close batch file " + path, ex);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public String getName() {
+        return CMD;
+    }
+
+}
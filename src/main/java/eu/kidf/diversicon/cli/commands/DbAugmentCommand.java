@@ -1,10 +1,16 @@
 package eu.kidf.diversicon.cli.commands;
 
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
 import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 
 import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.core.Diversicon;
 
 /** 
  * 
@@ -20,6 +26,23 @@ public class DbAugmentCommand implements DiverCliCommand {
      */
     public static final String CMD = "db-augment";
 
+    private static final Logger LOG = LoggerFactory.getLogger(DbAugmentCommand.class);
+
+    @Parameter(names = { "--parallel" }, description = "Number of threads computing the transitive closure"
+            + " in memory. Relations are loaded into compact arrays and inferred edges are written in batches."
+            + " If 0, the graph is augmented by Diversicon on a single thread.")
+    int parallel = 0;
+
+    @Parameter(names = { "--incremental" }, description = "Only updates the transitive closure reachable from"
+            + " relations added since the last augmentation, computing it in memory like --parallel."
+            + " If the last augmentation is not known, augments the whole graph.")
+    boolean incremental = false;
+
+    @Parameter(names = { "--memory-budget" }, description = "Megabytes of memory edges may take while computing"
+            + " the transitive closure. Edges exceeding it are kept in temporary files, so graphs bigger than the"
+            + " heap can be augmented. If 0, edges are all kept in memory.")
+    long memoryBudget = 0;
+
     private DiverCli diverCli;
     
     public DbAugmentCommand(DiverCli diverCli) {
@@ -33,7 +56,10 @@ public class DbAugmentCommand implements DiverCliCommand {
      */
 @Override
     public void configure(){        
-        // empty, for now diversicon will do the checks
+        checkArgument(parallel >= 0, "Number of threads can't be negative, found instead " + parallel);
+        checkArgument(memoryBudget >= 0, "Memory budget can't be negative, found instead " + memoryBudget);
+        checkArgument(memoryBudget == 0 || (parallel == 0 && !incremental),
+                "--memory-budget can't be combined with --parallel nor --incremental!");
     }
     
         /**
@@ -43,7 +69,34 @@ public class DbAugmentCommand implements DiverCliCommand {
 @Override
     public void run() {
         diverCli.connect();
-        diverCli.getDiversicon().processGraph();
+        Diversicon diversicon = diverCli.getDiversicon();
+        if (memoryBudget > 0) {
+            long start = System.nanoTime();
+            long written = new ExternalClosure(diversicon, memoryBudget * 1024 * 1024).run();
+            LOG.info("Augmented graph with " + written + " edges in "
+                    + DiverCli.formatElapsed(System.nanoTime() - start));
+        } else if (incremental || parallel > 0) {
+            long start = System.nanoTime();
+            Long lastRelationId = null;
+            if (incremental) {
+                AugmentWatermark last = AugmentWatermark.load(diverCli.getProjectDir());
+                if (last == null) {
+                    LOG.info("Last augmentation is not known, augmenting the whole graph.");
+                } else if (!last.precedes(AugmentWatermark.current(diversicon))) {
+                    LOG.warn("Last augmentation doesn't match the db, augmenting the whole graph.");
+                } else {
+                    LOG.info("Augmenting relations added after import job " + last.getImportJobId() + " ...");
+                    lastRelationId = last.getRelationId();
+                }
+            }
+            long written = new ParallelClosure(diversicon, Math.max(1, parallel), lastRelationId).run();
+            LOG.info("Augmented graph with " + written + " edges in "
+                    + DiverCli.formatElapsed(System.nanoTime() - start));
+        } else {
+            diversicon.processGraph();
+        }
+        AugmentWatermark.current(diversicon)
+                        .save(diverCli.getProjectDir());
     }
 
         /**
@@ -2,9 +2,15 @@ package eu.kidf.diversicon.cli.commands;
 
 import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+
 import com.beust.jcommander.Parameters;
 
 import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
 import eu.kidf.diversicon.core.Diversicons;
 
 /**
@@ -45,6 +51,15 @@ public class DbResetCommand implements DiverCliCommand {
     @Override
     public void run() {
         Diversicons.dropCreateTables(diverCli.divConfig().getDbConfig());
+        
+        // hashes of previous delta imports don't match the db anymore
+        File deltaDir = new File(diverCli.getProjectDir(), ImportXmlCommand.DELTA_DIR);
+        try {
+            FileUtils.deleteDirectory(deltaDir);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't delete delta import hashes in " + deltaDir.getAbsolutePath(), ex);
+        }
+        AugmentWatermark.delete(diverCli.getProjectDir());
     }
 
     /**
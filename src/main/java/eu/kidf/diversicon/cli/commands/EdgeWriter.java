@@ -0,0 +1,108 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotEmpty;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import javax.annotation.Nullable;
+
+import org.hibernate.Session;
+
+import de.tudarmstadt.ukp.lmf.model.enums.ERelNameSemantics;
+import de.tudarmstadt.ukp.lmf.model.enums.ERelTypeSemantic;
+import de.tudarmstadt.ukp.lmf.model.semantics.Synset;
+import eu.kidf.diversicon.core.DivSynsetRelation;
+import eu.kidf.diversicon.core.Diversicon;
+
+/**
+ * Saves synset relations inferred by graph augmentation through the db
+ * session, flushing and clearing it in batches so memory stays bounded.
+ * Relations get Diversicon provenance, as the ones written by
+ * {@link Diversicon#processGraph()}.
+ *
+ * @since 0.1.0
+ */
+class EdgeWriter {
+
+    /**
+     * Number of edges written before flushing and clearing the session
+     */
+    private static final int WRITE_BATCH = 1000;
+
+    private Session session;
+
+    private String relName;
+
+    @Nullable
+    private ERelTypeSemantic relType;
+
+    private long written;
+
+    /**
+     * Edges get the semantic type of {@code relName}, see
+     * {@link #relType(String)}
+     * 
+     * @since 0.1.0
+     */
+    EdgeWriter(Session session, String relName) {
+        checkNotNull(session);
+        checkNotEmpty(relName, "Invalid relation name!");
+        this.session = session;
+        this.relName = relName;
+        this.relType = relType(relName);
+    }
+
+    /**
+     * Returns the semantic type of relations named {@code relName}, which is
+     * the same for their inverses, or null if unknown. It only depends on
+     * the name, so it doesn't matter which relations are in the db.
+     * 
+     * @since 0.1.0
+     */
+    @Nullable
+    static ERelTypeSemantic relType(String relName) {
+        checkNotNull(relName);
+        // covers specific relations too, like hypernymInstance or holonymPart
+        if (relName.startsWith(ERelNameSemantics.HYPERNYM) || relName.startsWith(ERelNameSemantics.HYPONYM)) {
+            return ERelTypeSemantic.taxonomic;
+        }
+        if (relName.startsWith(ERelNameSemantics.HOLONYM) || relName.startsWith(ERelNameSemantics.MERONYM)) {
+            return ERelTypeSemantic.partWhole;
+        }
+        return null;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    void write(String sourceId, String targetId, int depth) {
+        DivSynsetRelation rel = new DivSynsetRelation();
+        rel.setSource((Synset) session.load(Synset.class, sourceId));
+        rel.setTarget((Synset) session.load(Synset.class, targetId));
+        rel.setRelName(relName);
+        rel.setRelType(relType);
+        rel.setDepth(depth);
+        rel.setProvenance(Diversicon.getProvenanceId());
+        session.save(rel);
+        written += 1;
+        if (written % WRITE_BATCH == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends pending edges to the db.
+     *
+     * @since 0.1.0
+     */
+    void flush() {
+        session.flush();
+        session.clear();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    long getWritten() {
+        return written;
+    }
+}
@@ -0,0 +1,458 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+
+/**
+ * Content hashes of the entries of a lexical resource in UBY-LMF XML format,
+ * to find which entries changed between two versions of the same resource.
+ *
+ * <p>
+ * Entries are the children of {@code Lexicon} elements, like
+ * {@code LexicalEntry} and {@code Synset}, and the children of
+ * {@code LexicalResource} other than {@code Lexicon} and
+ * {@code GlobalInformation}, like {@code SenseAxis}. An entry is keyed by its
+ * element name and {@code id} attribute; entries without id are keyed by their
+ * hash, so when they change they count as removed and added. Hashes ignore
+ * attribute order and whitespace around text.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+class EntryHashes {
+
+    private static final String LEXICAL_RESOURCE = "LexicalResource";
+    private static final String LEXICON = "Lexicon";
+    private static final String GLOBAL_INFORMATION = "GlobalInformation";
+    private static final String NAME_KEY = "lexicalResource.name";
+    private static final String ENTRY_KEY_PREFIX = "entry.";
+
+    private String resourceName;
+
+    /**
+     * Entry keys in document order, mapped to their hashes
+     */
+    private Map<String, String> hashes;
+
+    /**
+     * Keys of all entries in document order, including repeated ones. Empty
+     * for loaded hashes.
+     */
+    private List<String> entries;
+
+    /**
+     * @since 0.1.0
+     */
+    private EntryHashes(String resourceName, Map<String, String> hashes, List<String> entries) {
+        this.resourceName = resourceName;
+        this.hashes = hashes;
+        this.entries = entries;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    String getResourceName() {
+        return resourceName;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    int size() {
+        return hashes.size();
+    }
+
+    /**
+     * Computes the hashes of entries in {@code xmlFile}, streaming it.
+     *
+     * @throws DiverCliException
+     *             if file is not well formed or has no lexical resource name
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    static EntryHashes of(File xmlFile) {
+        checkNotNull(xmlFile);
+
+        Map<String, String> hashes = new LinkedHashMap<>();
+        List<String> entries = new ArrayList<>();
+        String name = null;
+        MessageDigest digest = newDigest();
+        String entryName = null;
+        String entryId = null;
+        int depth = 0;
+        int entryDepth = -1;
+        boolean inLexicon = false;
+
+        try (InputStream is = new FileInputStream(xmlFile)) {
+            XMLStreamReader reader = newInputFactory().createXMLStreamReader(is);
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth += 1;
+                    String localName = reader.getLocalName();
+                    if (depth == 1 && LEXICAL_RESOURCE.equals(localName)) {
+                        name = reader.getAttributeValue(null, "name");
+                    } else if (depth == 2 && LEXICON.equals(localName)) {
+                        inLexicon = true;
+                    } else if (entryDepth < 0 && isEntry(depth, inLexicon, localName)) {
+                        entryDepth = depth;
+                        entryName = localName;
+                        entryId = reader.getAttributeValue(null, "id");
+                        digest.reset();
+                    }
+                    if (entryDepth > 0) {
+                        update(digest, "<" + localName);
+                        List<String> attrs = new ArrayList<>();
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            attrs.add(reader.getAttributeLocalName(i) + "=" + reader.getAttributeValue(i));
+                        }
+                        Collections.sort(attrs);
+                        for (String attr : attrs) {
+                            update(digest, " " + attr);
+                        }
+                        update(digest, ">");
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (entryDepth > 0) {
+                        String text = reader.getText()
+                                            .trim();
+                        if (!text.isEmpty()) {
+                            update(digest, text);
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (entryDepth > 0) {
+                        update(digest, "</" + reader.getLocalName() + ">");
+                    }
+                    if (depth == entryDepth) {
+                        String hash = new BigInteger(1, digest.digest()).toString(Character.MAX_RADIX);
+                        String key = entryName + "#" + (entryId == null ? hash : entryId);
+                        hashes.put(key, hash);
+                        entries.add(key);
+                        entryDepth = -1;
+                    } else if (depth == 2 && LEXICON.equals(reader.getLocalName())) {
+                        inLexicon = false;
+                    }
+                    depth -= 1;
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException ex) {
+            throw new DiverCliException("Couldn't parse " + xmlFile.getAbsolutePath(), ex);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't read " + xmlFile.getAbsolutePath(), ex);
+        }
+
+        if (name == null || name.trim()
+                                .isEmpty()) {
+            throw new DiverCliException("Couldn't find the name of the lexical resource in "
+                    + xmlFile.getAbsolutePath());
+        }
+        return new EntryHashes(name, hashes, entries);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static boolean isEntry(int depth, boolean inLexicon, String localName) {
+        return (depth == 3 && inLexicon)
+                || (depth == 2 && !LEXICON.equals(localName) && !GLOBAL_INFORMATION.equals(localName));
+    }
+
+    /**
+     * Loads hashes saved with {@link #save(File)}, or returns null if
+     * {@code file} doesn't exist.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    @Nullable
+    static EntryHashes load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.load(is);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't read entry hashes " + file.getAbsolutePath(), ex);
+        }
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(ENTRY_KEY_PREFIX)) {
+                hashes.put(key.substring(ENTRY_KEY_PREFIX.length()), props.getProperty(key));
+            }
+        }
+        return new EntryHashes(props.getProperty(NAME_KEY), hashes, new ArrayList<String>());
+    }
+
+    /**
+     * Saves the hashes into {@code file}, through a temporary file so a crash
+     * can't leave half of them.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    void save(File file) {
+        Properties props = new Properties();
+        props.setProperty(NAME_KEY, resourceName);
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            props.setProperty(ENTRY_KEY_PREFIX + entry.getKey(), entry.getValue());
+        }
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            Files.createDirectories(file.getAbsoluteFile()
+                                        .getParentFile()
+                                        .toPath());
+            try (OutputStream os = new FileOutputStream(temp)) {
+                props.store(os, "Entry hashes of lexical resource " + resourceName);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't save entry hashes " + file.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * Compares these hashes, of the new version of a resource, with the ones
+     * of a {@code previous} version.
+     *
+     * @since 0.1.0
+     */
+    Diff diff(EntryHashes previous) {
+        checkNotNull(previous);
+        Diff ret = new Diff();
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            String oldHash = previous.hashes.get(entry.getKey());
+            if (oldHash == null) {
+                ret.added.add(entry.getKey());
+            } else if (!oldHash.equals(entry.getValue())) {
+                ret.changed.add(entry.getKey());
+            } else {
+                ret.unchanged += 1;
+            }
+        }
+        for (String key : previous.hashes.keySet()) {
+            if (!hashes.containsKey(key)) {
+                ret.removed.add(key);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the hashes of the entries in the db after appending to a
+     * {@code previous} version only the entries of these hashes it doesn't
+     * have: changed and removed entries keep their previous hash, as their
+     * previous version is the one in the db.
+     *
+     * @since 0.1.0
+     */
+    EntryHashes appendedTo(EntryHashes previous) {
+        checkNotNull(previous);
+        Map<String, String> ret = new LinkedHashMap<>(previous.hashes);
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            if (!ret.containsKey(entry.getKey())) {
+                ret.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new EntryHashes(resourceName, ret, new ArrayList<String>());
+    }
+
+    /**
+     * Copies {@code xmlFile} into {@code target}, keeping only the entries
+     * with keys in {@code keep}. All the rest, like {@code GlobalInformation}
+     * and {@code Lexicon} attributes, is copied as is.
+     *
+     * @param xmlFile
+     *            the same file these hashes were computed from with
+     *            {@link #of(File)}
+     *
+     * @throws DiverCliException
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    void writeOnly(Set<String> keep, File xmlFile, File target) {
+
+        // entries are met in the same order as when hashing
+        int entryIndex = 0;
+        int depth = 0;
+        int skipDepth = -1;
+        boolean inLexicon = false;
+
+        try (InputStream is = new FileInputStream(xmlFile); OutputStream os = new FileOutputStream(target)) {
+            XMLEventReader reader = newInputFactory().createXMLEventReader(is);
+            XMLEventWriter writer = XMLOutputFactory.newInstance()
+                                                    .createXMLEventWriter(os, "UTF-8");
+            int entryDepth = -1;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    depth += 1;
+                    String localName = event.asStartElement()
+                                            .getName()
+                                            .getLocalPart();
+                    if (depth == 2 && LEXICON.equals(localName)) {
+                        inLexicon = true;
+                    } else if (entryDepth < 0 && isEntry(depth, inLexicon, localName)) {
+                        entryDepth = depth;
+                        if (!keep.contains(entries.get(entryIndex))) {
+                            skipDepth = depth;
+                        }
+                        entryIndex += 1;
+                    }
+                } else if (event.isEndElement()) {
+                    if (depth == 2 && LEXICON.equals(event.asEndElement()
+                                                          .getName()
+                                                          .getLocalPart())) {
+                        inLexicon = false;
+                    }
+                    if (depth == entryDepth) {
+                        entryDepth = -1;
+                        if (skipDepth == depth) {
+                            skipDepth = -1;
+                            depth -= 1;
+                            continue;
+                        }
+                    }
+                    depth -= 1;
+                }
+                if (skipDepth < 0) {
+                    writer.add(event);
+                }
+            }
+            writer.flush();
+            writer.close();
+            reader.close();
+        } catch (XMLStreamException ex) {
+            throw new DiverCliException("Couldn't write entries of " + xmlFile.getAbsolutePath() + " into "
+                    + target.getAbsolutePath(), ex);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't write entries of " + xmlFile.getAbsolutePath() + " into "
+                    + target.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * Entity resolution and DTD loading are disabled, documents are only
+     * scanned.
+     *
+     * @since 0.1.0
+     */
+    static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new DiverCliException("SHA-1 is not available!", ex);
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static void update(MessageDigest digest, String s) {
+        digest.update(s.getBytes(StandardCharsets.UTF_8));
+        // separator, so adjacent strings can't be confused
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Differences between two versions of a resource
+     *
+     * @since 0.1.0
+     */
+    static class Diff {
+
+        private Set<String> added = new HashSet<>();
+        private Set<String> changed = new HashSet<>();
+        private Set<String> removed = new HashSet<>();
+        private int unchanged;
+
+        /**
+         * @since 0.1.0
+         */
+        boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        Set<String> getAdded() {
+            return Collections.unmodifiableSet(added);
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        Set<String> getChanged() {
+            return Collections.unmodifiableSet(changed);
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        Set<String> getRemoved() {
+            return Collections.unmodifiableSet(removed);
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        @Override
+        public String toString() {
+            return added.size() + " added, " + changed.size() + " changed, " + removed.size() + " removed, "
+                    + unchanged + " unchanged";
+        }
+    }
+}
@@ -46,7 +46,8 @@ public class ExportSqlCommand implements DiverCliCommand {
      */
     @Override
     public void configure() {
-        // empty, for now diversicon will do the checks
+        // for now diversicon will do the checks
+        sqlPaths.set(0, diverCli.resolvePath(sqlPaths.get(0)));
     }
 
     /**
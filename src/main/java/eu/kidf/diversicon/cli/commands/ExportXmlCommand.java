@@ -53,7 +53,8 @@ public class ExportXmlCommand implements DiverCliCommand {
      */
 @Override
     public void configure(){
-        // empty, for now diversicon will do the checks
+        // for now diversicon will do the checks
+        xmlPath.set(0, diverCli.resolvePath(xmlPath.get(0)));
     }
     
         /**
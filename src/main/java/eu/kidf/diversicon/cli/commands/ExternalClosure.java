@@ -0,0 +1,673 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+import eu.kidf.diversicon.core.Diversicon;
+import eu.kidf.diversicon.core.Diversicons;
+
+/**
+ * Augments the graph like {@link Diversicon#processGraph()}, keeping edges
+ * on disk so graphs bigger than the heap can be augmented.
+ *
+ * <p>
+ * Synset ids are encoded as their position in an {@link IdIndex} of all
+ * synsets, and edges as longs holding source and target, so sorting them
+ * sorts by source and then target. The closure is computed in semi-naive
+ * iterations: edges found at depth {@code d} are joined with direct edges
+ * to find candidates at depth {@code d + 1}, and the ones not known yet are
+ * written to the db as soon as they are found. Each step reads and writes
+ * sorted run files in a temporary dir, sorting them externally within the
+ * memory budget. Run files are memory mapped when small enough.
+ * </p>
+ *
+ * <p>
+ * The synset index and the db session stay in memory, so the budget only
+ * bounds memory taken by edges.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+class ExternalClosure {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExternalClosure.class);
+
+    /**
+     * Max number of run files merged at once
+     */
+    private static final int FAN_IN = 64;
+
+    /**
+     * Min number of edges sorted in memory
+     */
+    private static final int MIN_SORT_BUFFER = 1 << 16;
+
+    private Diversicon diversicon;
+
+    /**
+     * Number of edges sorted in memory before spilling them to a run file
+     */
+    private int sortBuffer;
+
+    /**
+     * @param memoryBudget
+     *            bytes edges may take in memory
+     *
+     * @since 0.1.0
+     */
+    ExternalClosure(Diversicon diversicon, long memoryBudget) {
+        checkNotNull(diversicon);
+        checkArgument(memoryBudget > 0, "Memory budget must be positive, found instead " + memoryBudget);
+        this.diversicon = diversicon;
+        // half the budget for sorting, the rest for readers and session
+        this.sortBuffer = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(MIN_SORT_BUFFER, memoryBudget / 2 / 8));
+    }
+
+    /**
+     * Overrides the number of edges sorted in memory computed from the
+     * memory budget, so that even small graphs can be spilled to disk.
+     *
+     * @since 0.1.0
+     */
+    void setSortBuffer(int sortBuffer) {
+        checkArgument(sortBuffer > 0, "Sort buffer must be positive, found instead " + sortBuffer);
+        this.sortBuffer = sortBuffer;
+    }
+
+    /**
+     * Augments all canonical transitive relations in a single transaction.
+     *
+     * @return the number of written edges
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    long run() {
+        File tempDir;
+        try {
+            tempDir = Files.createTempDirectory(DiverCli.CMD + "-closure")
+                           .toFile();
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't create temporary dir for closure edges!", ex);
+        }
+
+        Session session = diversicon.getSession();
+        Transaction tx = session.beginTransaction();
+        try {
+            final IdIndex[] synsets = { null };
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    synsets[0] = IdIndex.load(connection, "Synset", "synsetId");
+                }
+            });
+            LOG.debug("Indexed " + synsets[0].size() + " synsets");
+
+            long written = 0;
+            for (String relName : Diversicons.getCanonicalTransitiveRelations()) {
+                written += augment(session, synsets[0], relName, tempDir);
+            }
+            tx.commit();
+            return written;
+        } catch (RuntimeException ex) {
+            tx.rollback();
+            throw ex;
+        } finally {
+            FileUtils.deleteQuietly(tempDir);
+        }
+    }
+
+    /**
+     * @return the number of written edges
+     *
+     * @since 0.1.0
+     */
+    private long augment(Session session, IdIndex synsets, String relName, File dir) {
+        long start = System.nanoTime();
+
+        LongSorter canonicalSorter = new LongSorter(dir, sortBuffer);
+        load(session, synsets, relName, false, canonicalSorter);
+        File canonical = canonicalSorter.finish();
+        LongSorter inverseSorter = new LongSorter(dir, sortBuffer);
+        if (Diversicons.hasInverse(relName)) {
+            load(session, synsets, Diversicons.getInverse(relName), true, inverseSorter);
+        }
+        File inverse = inverseSorter.finish();
+
+        session.createQuery("delete from DivSynsetRelation where relName = :relName and depth > 1"
+                + " and provenance = :provenance")
+               .setParameter("relName", relName)
+               .setParameter("provenance", Diversicon.getProvenanceId())
+               .executeUpdate();
+
+        EdgeWriter writer = new EdgeWriter(session, relName);
+
+        // direct edges, writing inverse ones missing their canonical counterpart
+        File direct = newFile(dir);
+        long directCount = 0;
+        try (LongReader c = new LongReader(canonical);
+                LongReader i = new LongReader(inverse);
+                LongWriter out = new LongWriter(direct)) {
+            while (c.hasNext() || i.hasNext()) {
+                if (!i.hasNext() || (c.hasNext() && c.peek() < i.peek())) {
+                    out.write(c.next());
+                } else if (!c.hasNext() || i.peek() < c.peek()) {
+                    long edge = i.next();
+                    writer.write(synsets.get(source(edge)), synsets.get(target(edge)), 1);
+                    out.write(edge);
+                } else {
+                    out.write(c.next());
+                    i.next();
+                }
+                directCount += 1;
+            }
+        }
+        delete(canonical);
+        delete(inverse);
+        long normalized = writer.getWritten();
+
+        File known = direct;
+        File delta = direct;
+        long deltaCount = directCount;
+        int depth = 1;
+        try {
+            while (deltaCount > 0) {
+                File candidates = join(delta, direct, dir);
+                depth += 1;
+
+                File newKnown = newFile(dir);
+                File newDelta = newFile(dir);
+                long newCount = 0;
+                try (LongReader c = new LongReader(candidates);
+                        LongReader k = new LongReader(known);
+                        LongWriter knownOut = new LongWriter(newKnown);
+                        LongWriter deltaOut = new LongWriter(newDelta)) {
+                    while (c.hasNext() || k.hasNext()) {
+                        if (!c.hasNext() || (k.hasNext() && k.peek() < c.peek())) {
+                            knownOut.write(k.next());
+                        } else if (!k.hasNext() || c.peek() < k.peek()) {
+                            long edge = c.next();
+                            writer.write(synsets.get(source(edge)), synsets.get(target(edge)), depth);
+                            knownOut.write(edge);
+                            deltaOut.write(edge);
+                            newCount += 1;
+                        } else {
+                            knownOut.write(k.next());
+                            c.next();
+                        }
+                    }
+                }
+                delete(candidates);
+                if (delta != direct) {
+                    delete(delta);
+                }
+                if (known != direct) {
+                    delete(known);
+                }
+                known = newKnown;
+                delta = newDelta;
+                deltaCount = newCount;
+                LOG.debug("Found " + newCount + " " + relName + " edges at depth " + depth);
+            }
+        } finally {
+            delete(direct);
+            delete(known);
+            delete(delta);
+        }
+        writer.flush();
+
+        LOG.info("Augmented " + relName + ": " + directCount + " direct edges, " + normalized + " normalized and "
+                + (writer.getWritten() - normalized) + " inferred edges up to depth " + (depth - 1) + " in "
+                + DiverCli.formatElapsed(System.nanoTime() - start));
+        return writer.getWritten();
+    }
+
+    /**
+     * Returns the sorted file of edges {@code (a, c)} with {@code (a, b)} in
+     * {@code delta} and {@code (b, c)} in {@code direct}, {@code a != c}.
+     *
+     * @since 0.1.0
+     */
+    private File join(File delta, File direct, File dir) {
+        // delta by target, so it can be merged with direct by source
+        LongSorter byTarget = new LongSorter(dir, sortBuffer);
+        try (LongReader d = new LongReader(delta)) {
+            while (d.hasNext()) {
+                long edge = d.next();
+                byTarget.add(edge(target(edge), source(edge)));
+            }
+        }
+        File deltaByTarget = byTarget.finish();
+
+        LongSorter candidates = new LongSorter(dir, sortBuffer);
+        int[] successors = new int[16];
+        try (LongReader d = new LongReader(deltaByTarget); LongReader e = new LongReader(direct)) {
+            while (d.hasNext()) {
+                int b = source(d.peek());
+                while (e.hasNext() && source(e.peek()) < b) {
+                    e.next();
+                }
+                int n = 0;
+                while (e.hasNext() && source(e.peek()) == b) {
+                    if (n == successors.length) {
+                        successors = Arrays.copyOf(successors, n * 2);
+                    }
+                    successors[n++] = target(e.next());
+                }
+                while (d.hasNext() && source(d.peek()) == b) {
+                    int a = target(d.next());
+                    for (int i = 0; i < n; i++) {
+                        if (a != successors[i]) {
+                            candidates.add(edge(a, successors[i]));
+                        }
+                    }
+                }
+            }
+        }
+        delete(deltaByTarget);
+        return candidates.finish();
+    }
+
+    /**
+     * Adds to {@code sorter} direct edges named {@code relName}, reversing
+     * them if {@code inverse}.
+     *
+     * @since 0.1.0
+     */
+    private static void load(Session session, IdIndex synsets, String relName, boolean inverse,
+            LongSorter sorter) {
+        ScrollableResults rs = session.createQuery("select sr.source.id, sr.target.id"
+                + " from DivSynsetRelation sr where sr.relName = :relName and sr.depth = 1")
+                                      .setParameter("relName", relName)
+                                      .setReadOnly(true)
+                                      .setFetchSize(10000)
+                                      .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (rs.next()) {
+                Object[] row = rs.get();
+                int source = code(synsets, (String) (inverse ? row[1] : row[0]));
+                int target = code(synsets, (String) (inverse ? row[0] : row[1]));
+                sorter.add(edge(source, target));
+            }
+        } finally {
+            rs.close();
+        }
+    }
+
+    /**
+     * @throws DiverCliException
+     *             if synset is not in the index
+     *
+     * @since 0.1.0
+     */
+    private static int code(IdIndex synsets, String id) {
+        int ret = synsets.indexOf(id);
+        if (ret < 0) {
+            throw new DiverCliException("Found relation with unknown synset " + id);
+        }
+        return ret;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static long edge(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static int source(long edge) {
+        return (int) (edge >>> 32);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static int target(long edge) {
+        return (int) edge;
+    }
+
+    /**
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    private static File newFile(File dir) {
+        try {
+            return File.createTempFile("edges", ".bin", dir);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't create edge file in " + dir.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            // mapped files can't be deleted on some platforms, temp dir is deleted at the end
+            LOG.debug("Couldn't delete edge file " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Sorts longs removing duplicates, spilling sorted runs to disk when the
+     * buffer is full and merging them at the end.
+     *
+     * @since 0.1.0
+     */
+    private static class LongSorter {
+
+        private File dir;
+
+        private long[] buffer;
+
+        /**
+         * Buffer grows up to this size, so small sorts take little memory
+         */
+        private int maxBuffer;
+
+        private int size;
+
+        private List<File> runs = new ArrayList<>();
+
+        /**
+         * @since 0.1.0
+         */
+        LongSorter(File dir, int bufferSize) {
+            this.dir = dir;
+            this.buffer = new long[Math.min(bufferSize, MIN_SORT_BUFFER)];
+            this.maxBuffer = bufferSize;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        void add(long value) {
+            if (size == buffer.length) {
+                if (buffer.length < maxBuffer) {
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(maxBuffer, 2L * buffer.length));
+                } else {
+                    spill();
+                }
+            }
+            buffer[size++] = value;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        private void spill() {
+            Arrays.sort(buffer, 0, size);
+            File run = newFile(dir);
+            try (LongWriter out = new LongWriter(run)) {
+                for (int i = 0; i < size; i++) {
+                    if (i == 0 || buffer[i] != buffer[i - 1]) {
+                        out.write(buffer[i]);
+                    }
+                }
+            }
+            runs.add(run);
+            size = 0;
+        }
+
+        /**
+         * Returns the file with all added values sorted and without
+         * duplicates. The sorter can't be used anymore.
+         *
+         * @since 0.1.0
+         */
+        File finish() {
+            if (size > 0 || runs.isEmpty()) {
+                spill();
+            }
+            buffer = null;
+            while (runs.size() > 1) {
+                List<File> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += FAN_IN) {
+                    merged.add(merge(runs.subList(i, Math.min(i + FAN_IN, runs.size()))));
+                }
+                runs = merged;
+            }
+            return runs.get(0);
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        private File merge(List<File> files) {
+            if (files.size() == 1) {
+                return files.get(0);
+            }
+            File ret = newFile(dir);
+            List<LongReader> readers = new ArrayList<>();
+            try (LongWriter out = new LongWriter(ret)) {
+                PriorityQueue<LongReader> queue = new PriorityQueue<>(files.size(), LongReader.BY_HEAD);
+                for (File file : files) {
+                    LongReader reader = new LongReader(file);
+                    readers.add(reader);
+                    if (reader.hasNext()) {
+                        queue.add(reader);
+                    }
+                }
+                boolean first = true;
+                long last = 0;
+                while (!queue.isEmpty()) {
+                    LongReader reader = queue.poll();
+                    long value = reader.next();
+                    if (first || value != last) {
+                        out.write(value);
+                        last = value;
+                        first = false;
+                    }
+                    if (reader.hasNext()) {
+                        queue.add(reader);
+                    }
+                }
+            } finally {
+                for (LongReader reader : readers) {
+                    reader.close();
+                }
+            }
+            for (File file : files) {
+                delete(file);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Reads longs from a file, memory mapping it when possible.
+     *
+     * @since 0.1.0
+     */
+    private static class LongReader implements Closeable {
+
+        private static final Comparator<LongReader> BY_HEAD = new Comparator<LongReader>() {
+            @Override
+            public int compare(LongReader a, LongReader b) {
+                return Long.compare(a.head, b.head);
+            }
+        };
+
+        private File file;
+
+        @Nullable
+        private LongBuffer mapped;
+
+        @Nullable
+        private DataInputStream in;
+
+        private long remaining;
+
+        private boolean hasHead;
+
+        private long head;
+
+        /**
+         * @throws DiverCliIoException
+         *
+         * @since 0.1.0
+         */
+        LongReader(File file) {
+            this.file = file;
+            long length = file.length();
+            this.remaining = length / 8;
+            try {
+                if (length <= Integer.MAX_VALUE) {
+                    // mapping stays valid after the channel is closed
+                    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                            FileChannel channel = raf.getChannel()) {
+                        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length)
+                                        .asLongBuffer();
+                    }
+                } else {
+                    in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+                }
+            } catch (IOException ex) {
+                throw new DiverCliIoException("Couldn't read edge file " + file.getAbsolutePath(), ex);
+            }
+            advance();
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        private void advance() {
+            if (remaining == 0) {
+                hasHead = false;
+                return;
+            }
+            try {
+                head = mapped != null ? mapped.get() : in.readLong();
+            } catch (IOException ex) {
+                throw new DiverCliIoException("Couldn't read edge file " + file.getAbsolutePath(), ex);
+            }
+            remaining -= 1;
+            hasHead = true;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        boolean hasNext() {
+            return hasHead;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        long peek() {
+            return head;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        long next() {
+            long ret = head;
+            advance();
+            return ret;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        @Override
+        public void close() {
+            mapped = null;
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    LOG.debug("Couldn't close edge file " + file.getAbsolutePath(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static class LongWriter implements Closeable {
+
+        private File file;
+
+        private DataOutputStream out;
+
+        /**
+         * @throws DiverCliIoException
+         *
+         * @since 0.1.0
+         */
+        LongWriter(File file) {
+            this.file = file;
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            } catch (IOException ex) {
+                throw new DiverCliIoException("Couldn't write edge file " + file.getAbsolutePath(), ex);
+            }
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        void write(long value) {
+            try {
+                out.writeLong(value);
+            } catch (IOException ex) {
+                throw new DiverCliIoException("Couldn't write edge file " + file.getAbsolutePath(), ex);
+            }
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        @Override
+        public void close() {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                throw new DiverCliIoException("Couldn't write edge file " + file.getAbsolutePath(), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotBlank;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+import eu.kidf.diversicon.core.Diversicons;
+import eu.kidf.diversicon.core.ExtractedStream;
+
+/**
+ * Fetches and extracts lexical resources into plain local files, so the db
+ * write phase doesn't wait on network or decompression. Staged files are kept
+ * in a private temporary directory, deleted on {@link #close()}.
+ *
+ * <p>
+ * Methods are thread safe.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+class FileStager implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileStager.class);
+
+    private static final String FILE_URL_PREFIX = "file:";
+
+    private static final String[] COMPRESSION_EXTENSIONS = { ".zip", ".gz", ".bz2", ".xz", ".tar" };
+
+    private File dir;
+
+    private AtomicInteger counter;
+
+    /**
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    FileStager() {
+        try {
+            this.dir = Files.createTempDirectory("divercli-staging")
+                            .toFile();
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't create staging directory!", ex);
+        }
+        this.counter = new AtomicInteger();
+    }
+
+    /**
+     * Returns true if {@code url} is not already a plain local XML file.
+     *
+     * @since 0.1.0
+     */
+    static boolean needsStaging(String url) {
+        return localXmlFile(url) == null;
+    }
+
+    /**
+     * Returns the file {@code url} points to if it is a plain local XML file
+     * which can be read directly, otherwise returns null.
+     *
+     * @param url
+     *            a path or a {@code file:} url
+     *
+     * @since 0.1.0
+     */
+    @Nullable
+    static File localXmlFile(String url) {
+        File file = new File(url);
+        if (!file.exists() && url.startsWith(FILE_URL_PREFIX)) {
+            try {
+                file = new File(new URI(url));
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                return null;
+            }
+        }
+        if (file.isFile() && file.getName()
+                                 .toLowerCase(Locale.ROOT)
+                                 .endsWith(".xml")) {
+            return file;
+        }
+        return null;
+    }
+
+    /**
+     * Fetches and extracts {@code url} into a local file named like the
+     * original resource.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    File stage(String url) {
+        checkNotBlank(url, "Invalid url!");
+
+        ExtractedStream es = Diversicons.readData(url);
+        File tempFile = es.toTempFile();
+
+        File target = newFile(stagedName(url));
+        try {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't stage " + url, ex);
+        }
+        LOG.debug("Staged " + url + " into " + target.getAbsolutePath());
+        return target;
+    }
+
+    /**
+     * Returns a path in the staging directory for a new file called
+     * {@code name}, which is deleted on {@link #close()} like staged ones.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    File newFile(String name) {
+        checkNotBlank(name, "Invalid file name!");
+        // each file gets its own subdir, so names can't collide
+        File ret = new File(new File(dir, Integer.toString(counter.incrementAndGet())), name);
+        try {
+            Files.createDirectories(ret.getParentFile()
+                                       .toPath());
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't create staging subdirectory for " + name, ex);
+        }
+        return ret;
+    }
+
+    /**
+     * Deletes a staged file, to free disk space as soon as it is not needed.
+     * Files not in staging directory are left untouched.
+     *
+     * @since 0.1.0
+     */
+    void discard(File stagedFile) {
+        if (stagedFile.getAbsolutePath()
+                      .startsWith(dir.getAbsolutePath())) {
+            if (!stagedFile.delete()) {
+                LOG.debug("Couldn't delete staged file " + stagedFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Returns the last path segment of {@code url}, without compression
+     * extensions and ending with {@code .xml}
+     *
+     * @since 0.1.0
+     */
+    static String stagedName(String url) {
+        String name = url;
+        int q = name.indexOf('?');
+        if (q >= 0) {
+            name = name.substring(0, q);
+        }
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        name = name.substring(slash + 1);
+        int colon = name.lastIndexOf(':');
+        name = name.substring(colon + 1);
+
+        boolean stripped = true;
+        while (stripped) {
+            stripped = false;
+            for (String ext : COMPRESSION_EXTENSIONS) {
+                if (name.toLowerCase(Locale.ROOT)
+                        .endsWith(ext)) {
+                    name = name.substring(0, name.length() - ext.length());
+                    stripped = true;
+                }
+            }
+        }
+        if (name.isEmpty()) {
+            name = "lexres";
+        }
+        if (!name.toLowerCase(Locale.ROOT)
+                 .endsWith(".xml")) {
+            name = name + ".xml";
+        }
+        return name;
+    }
+
+    /**
+     * Deletes all staged files.
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void close() {
+        try {
+            FileUtils.deleteDirectory(dir);
+        } catch (IOException ex) {
+            LOG.error("Couldn't delete staging directory " + dir.getAbsolutePath(), ex);
+        }
+    }
+}
@@ -66,8 +66,7 @@ public class HelpCommand implements DiverCliCommand {
         } else {
             StringBuilder sb = new StringBuilder();
             String cmd = commandNameList.get(0);
-            if (diverCli.getCommands()
-                        .keySet()
+            if (diverCli.availableCommandNames()
                         .contains(cmd)) {
                 diverCli.getJCommander()
                         .usage(cmd, sb);
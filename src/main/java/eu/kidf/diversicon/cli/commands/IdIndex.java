@@ -0,0 +1,241 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable set of ids held in a compact form: ids are UTF-8 encoded, sorted
+ * and concatenated into a single byte array with an array of offsets, and a
+ * Bloom filter in front answers most lookups of absent ids without touching
+ * the array. Takes about the size of the ids plus 6 bytes each, versus
+ * several times that for a {@code HashSet<String>}.
+ *
+ * @since 0.1.0
+ */
+final class IdIndex {
+
+    /**
+     * Bloom filter bits for each id, with {@link #HASHES} hashes gives around
+     * 1% false positives
+     */
+    private static final int BITS_PER_ID = 10;
+
+    private static final int HASHES = 7;
+
+    private static final Comparator<byte[]> UNSIGNED_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            return IdIndex.compare(a, 0, a.length, b);
+        }
+    };
+
+    private final byte[] data;
+
+    /**
+     * Start of each id in {@link #data}, plus end of last one
+     */
+    private final int[] offsets;
+
+    private final long[] bloom;
+
+    /**
+     * @since 0.1.0
+     */
+    private IdIndex(byte[] data, int[] offsets, long[] bloom) {
+        this.data = data;
+        this.offsets = offsets;
+        this.bloom = bloom;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    static IdIndex of(Collection<String> ids) {
+        checkNotNull(ids);
+        List<byte[]> encoded = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            encoded.add(id.getBytes(StandardCharsets.UTF_8));
+        }
+        return build(encoded);
+    }
+
+    /**
+     * Loads all values of {@code column} in {@code table}, null ones
+     * excluded, streaming them from the db.
+     *
+     * @since 0.1.0
+     */
+    static IdIndex load(Connection connection, String table, String column) throws SQLException {
+        checkNotNull(connection);
+        List<byte[]> encoded = new ArrayList<>();
+        try (Statement st = connection.createStatement()) {
+            st.setFetchSize(10000);
+            try (ResultSet rs = st.executeQuery("SELECT " + column + " FROM " + table + " WHERE " + column
+                    + " IS NOT NULL")) {
+                while (rs.next()) {
+                    encoded.add(rs.getString(1)
+                                  .getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return build(encoded);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static IdIndex build(List<byte[]> encoded) {
+        Collections.sort(encoded, UNSIGNED_ORDER);
+
+        int n = 0;
+        long size = 0;
+        for (int i = 0; i < encoded.size(); i++) {
+            if (i == 0 || UNSIGNED_ORDER.compare(encoded.get(i - 1), encoded.get(i)) != 0) {
+                encoded.set(n, encoded.get(i));
+                n += 1;
+                size += encoded.get(i).length;
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many ids to index: " + size + " bytes");
+        }
+
+        byte[] data = new byte[(int) size];
+        int[] offsets = new int[n + 1];
+        long[] bloom = new long[Math.max(1, (int) Math.min(Integer.MAX_VALUE, ((long) n * BITS_PER_ID + 63) / 64))];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            byte[] id = encoded.get(i);
+            offsets[i] = pos;
+            System.arraycopy(id, 0, data, pos, id.length);
+            pos += id.length;
+            addToBloom(bloom, id);
+        }
+        offsets[n] = pos;
+        return new IdIndex(data, offsets, bloom);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Returns the position of {@code id} in the sorted ids, or -1 if it's not
+     * there. Positions go from 0 to {@code size() - 1}, so they can be used
+     * as dense int codes of the ids.
+     *
+     * @since 0.1.0
+     */
+    int indexOf(String id) {
+        checkNotNull(id);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (!mightContain(bloom, key)) {
+            return -1;
+        }
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(data, offsets[mid], offsets[mid + 1], key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the id at position {@code i} of the sorted ids
+     *
+     * @since 0.1.0
+     */
+    String get(int i) {
+        return new String(data, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares {@code a[from, to)} with {@code b} as unsigned bytes.
+     *
+     * @since 0.1.0
+     */
+    private static int compare(byte[] a, int from, int to, byte[] b) {
+        int len = Math.min(to - from, b.length);
+        for (int i = 0; i < len; i++) {
+            int cmp = (a[from + i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return (to - from) - b.length;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static void addToBloom(long[] bloom, byte[] key) {
+        long bits = (long) bloom.length * 64;
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static boolean mightContain(long[] bloom, byte[] key) {
+        long bits = (long) bloom.length * 64;
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV style hash with a final mix
+     *
+     * @since 0.1.0
+     */
+    private static long hash(byte[] key, long seed) {
+        long h = seed;
+        for (byte b : key) {
+            h ^= b & 0xff;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,191 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliNotFoundException;
+
+/**
+ * Progress of an {@code import-xml} run importing files one job per file,
+ * stored in project dir after each committed file so a failed run can be
+ * resumed. A run is identified by the id of the import job of its first
+ * file.
+ *
+ * @since 0.1.0
+ */
+class ImportCheckpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportCheckpoint.class);
+
+    private static final String FILES_KEY = "files";
+    private static final String FILE_KEY_PREFIX = "file.";
+    private static final String JOB_KEY_PREFIX = "job.";
+
+    private File projectDir;
+
+    @Nullable
+    private Long runId;
+
+    private Properties props;
+
+    /**
+     * @since 0.1.0
+     */
+    private ImportCheckpoint(File projectDir, @Nullable Long runId, Properties props) {
+        this.projectDir = projectDir;
+        this.runId = runId;
+        this.props = props;
+    }
+
+    /**
+     * Creates a checkpoint for a new run, which is saved only when first
+     * file is done.
+     *
+     * @since 0.1.0
+     */
+    static ImportCheckpoint create(File projectDir, List<String> fileUrls) {
+        checkNotNull(projectDir);
+        checkNotNull(fileUrls);
+        Properties props = new Properties();
+        props.setProperty(FILES_KEY, Integer.toString(fileUrls.size()));
+        for (int i = 0; i < fileUrls.size(); i++) {
+            props.setProperty(FILE_KEY_PREFIX + i, fileUrls.get(i));
+        }
+        return new ImportCheckpoint(projectDir, null, props);
+    }
+
+    /**
+     * Loads the checkpoint of run {@code runId}
+     *
+     * @throws DiverCliNotFoundException
+     *             if there is no checkpoint for the run
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    static ImportCheckpoint load(File projectDir, long runId) {
+        checkNotNull(projectDir);
+        File file = file(projectDir, runId);
+        if (!file.isFile()) {
+            throw new DiverCliNotFoundException("Couldn't find checkpoint of import " + runId + " in "
+                    + projectDir.getAbsolutePath() + ", maybe the import already completed?");
+        }
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.load(is);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't read import checkpoint " + file.getAbsolutePath(), ex);
+        }
+        return new ImportCheckpoint(projectDir, runId, props);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    static File file(File projectDir, long runId) {
+        return new File(projectDir, DiverCli.CMD + "-import-" + runId + ".checkpoint");
+    }
+
+    /**
+     * Returns the run id, or null if no file was committed yet.
+     *
+     * @since 0.1.0
+     */
+    @Nullable
+    Long getRunId() {
+        return runId;
+    }
+
+    /**
+     * @throws DiverCliException
+     *             if {@code fileUrls} differ from files of the checkpointed run
+     *
+     * @since 0.1.0
+     */
+    void checkSameFiles(List<String> fileUrls) {
+        List<String> stored = new ArrayList<>();
+        int n = Integer.parseInt(props.getProperty(FILES_KEY, "0"));
+        for (int i = 0; i < n; i++) {
+            stored.add(props.getProperty(FILE_KEY_PREFIX + i));
+        }
+        if (!stored.equals(fileUrls)) {
+            throw new DiverCliException("Files to import differ from the ones of import " + runId
+                    + "! To resume, provide the same files in the same order: " + stored);
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    boolean isDone(int i) {
+        return props.containsKey(JOB_KEY_PREFIX + i);
+    }
+
+    /**
+     * Records file at index {@code i} was committed by import job
+     * {@code importJobId}, and saves the checkpoint.
+     *
+     * @throws DiverCliIoException
+     *
+     * @since 0.1.0
+     */
+    void done(int i, long importJobId) {
+        checkArgument(i >= 0, "Invalid file index: " + i);
+        if (runId == null) {
+            runId = importJobId;
+        }
+        props.setProperty(JOB_KEY_PREFIX + i, Long.toString(importJobId));
+        save();
+    }
+
+    /**
+     * Deletes the stored checkpoint, if any.
+     *
+     * @since 0.1.0
+     */
+    void delete() {
+        if (runId != null && !file(projectDir, runId).delete()) {
+            LOG.debug("Couldn't delete import checkpoint " + file(projectDir, runId).getAbsolutePath());
+        }
+    }
+
+    /**
+     * Writes to a temporary file first, so a crash can't leave a half
+     * written checkpoint.
+     *
+     * @since 0.1.0
+     */
+    private void save() {
+        File target = file(projectDir, runId);
+        File temp = new File(target.getAbsolutePath() + ".tmp");
+        try {
+            try (OutputStream os = new FileOutputStream(temp)) {
+                props.store(os, "Progress of import " + runId + ", written by " + DiverCli.CMD);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't save import checkpoint " + target.getAbsolutePath(), ex);
+        }
+    }
+}
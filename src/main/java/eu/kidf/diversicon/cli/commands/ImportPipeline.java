@@ -0,0 +1,183 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stages lexical resources ahead of the thread writing them into the db, so
+ * fetching and extracting file {@code N+1} overlaps with the import of file
+ * {@code N}.
+ *
+ * <p>
+ * At most {@code prefetch} files are staged and waiting beyond the one being
+ * imported. Staging of a new file also waits while staged files not yet
+ * imported take more than {@code maxStagedBytes} on disk. Files being staged
+ * when the limit is reached can still exceed it, so the limit is soft. If a
+ * single file is bigger than the limit, it is staged anyway when nothing else
+ * is waiting.
+ * </p>
+ *
+ * <p>
+ * The consumer must call {@link #take(int)} and {@link #done(int)} for each
+ * index in order.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+class ImportPipeline implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportPipeline.class);
+
+    private List<String> urls;
+
+    private FileStager stager;
+
+    private long maxStagedBytes;
+
+    private Semaphore lookAhead;
+
+    private List<FutureTask<File>> tasks;
+
+    private ExecutorService pool;
+
+    private Thread submitter;
+
+    private long stagedBytes;
+
+    private int stagedFiles;
+
+    /**
+     * @param prefetch
+     *            how many files can be staged ahead of the one being imported,
+     *            if 0 each file is staged only after previous one is done
+     * @param jobs
+     *            how many files can be staged at the same time
+     * @param maxStagedBytes
+     *            soft limit of disk space used by staged files
+     *
+     * @since 0.1.0
+     */
+    ImportPipeline(List<String> urls, FileStager stager, int prefetch, int jobs, long maxStagedBytes) {
+        checkNotNull(urls);
+        checkNotNull(stager);
+        checkArgument(prefetch >= 0, "Prefetch can't be negative, found instead " + prefetch);
+        checkArgument(jobs > 0, "Jobs must be positive, found instead " + jobs);
+        checkArgument(maxStagedBytes > 0, "Max staged bytes must be positive, found instead " + maxStagedBytes);
+
+        this.urls = new ArrayList<>(urls);
+        this.stager = stager;
+        this.maxStagedBytes = maxStagedBytes;
+        // the file being imported holds a permit too
+        this.lookAhead = new Semaphore(prefetch + 1);
+        this.pool = Executors.newFixedThreadPool(Math.min(jobs, prefetch + 1));
+        this.tasks = new ArrayList<>();
+
+        for (final String url : this.urls) {
+            tasks.add(new FutureTask<>(new Callable<File>() {
+                @Override
+                public File call() {
+                    if (!FileStager.needsStaging(url)) {
+                        return new File(url);
+                    }
+                    File staged = ImportPipeline.this.stager.stage(url);
+                    synchronized (ImportPipeline.this) {
+                        stagedBytes += staged.length();
+                        stagedFiles += 1;
+                    }
+                    return staged;
+                }
+            }));
+        }
+
+        this.submitter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                submitAll();
+            }
+        }, "divercli-import-prefetch");
+        this.submitter.setDaemon(true);
+    }
+
+    /**
+     * Starts staging files in background.
+     *
+     * @since 0.1.0
+     */
+    void start() {
+        submitter.start();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private void submitAll() {
+        try {
+            for (FutureTask<File> task : tasks) {
+                lookAhead.acquire();
+                synchronized (this) {
+                    while (stagedFiles > 0 && stagedBytes >= maxStagedBytes) {
+                        wait();
+                    }
+                }
+                pool.execute(task);
+            }
+        } catch (InterruptedException ex) {
+            LOG.debug("Prefetching interrupted.");
+        }
+    }
+
+    /**
+     * Waits for file at index {@code i} to be staged and returns it.
+     *
+     * @throws eu.kidf.diversicon.cli.exceptions.DiverCliException
+     *             if staging failed
+     *
+     * @since 0.1.0
+     */
+    File take(int i) {
+        return ImportXmlCommand.waitStaged(tasks.get(i), urls.get(i));
+    }
+
+    /**
+     * Tells file at index {@code i} was imported, so it can be deleted and
+     * another one prefetched.
+     *
+     * @since 0.1.0
+     */
+    void done(int i) {
+        File file = ImportXmlCommand.waitStaged(tasks.get(i), urls.get(i));
+        if (FileStager.needsStaging(urls.get(i))) {
+            long size = file.length();
+            stager.discard(file);
+            synchronized (this) {
+                stagedBytes -= size;
+                stagedFiles -= 1;
+                notifyAll();
+            }
+        }
+        lookAhead.release();
+    }
+
+    /**
+     * Stops prefetching. Staged files are left to the {@link FileStager}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void close() {
+        submitter.interrupt();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,307 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotEmpty;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.core.Diversicon;
+import eu.kidf.diversicon.core.ImportJob;
+import eu.kidf.diversicon.core.LogMessage;
+
+/**
+ * Periodically logs the progress of an import: current phase, files and
+ * bytes done, throughput and an estimate of remaining time based on file
+ * sizes. Also keeps the total time spent in each phase, to be stored with
+ * import jobs.
+ *
+ * <p>
+ * Progress is tracked file by file, as a single file is written into the db
+ * by {@link Diversicon#importFiles(eu.kidf.diversicon.core.ImportConfig)}
+ * without intermediate feedback. Sizes of remote or compressed files are
+ * known only once they are staged.
+ * </p>
+ *
+ * <p>
+ * Methods are thread safe. Progress is logged from a timer thread, so it
+ * doesn't end up in import job logs.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+class ImportProgress {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportProgress.class);
+
+    /**
+     * @since 0.1.0
+     */
+    static final String FETCH = "fetch";
+
+    /**
+     * Validation and writing, both done by the importer
+     *
+     * @since 0.1.0
+     */
+    static final String IMPORT = "import";
+
+    /**
+     * Computing entries to write in delta imports
+     *
+     * @since 0.1.0
+     */
+    static final String DELTA = "delta";
+
+    /**
+     * Rebuilding indexes in bulk imports
+     *
+     * @since 0.1.0
+     */
+    static final String INDEXES = "indexes";
+
+    /**
+     * @since 0.1.0
+     */
+    static final String AUGMENT = "augment";
+
+    private int totalFiles;
+
+    /**
+     * Known size of each file, -1 if not known yet
+     */
+    private long[] sizes;
+
+    private int filesDone;
+
+    private long bytesDone;
+
+    private long startNanos;
+
+    private String phase;
+
+    private long phaseStartNanos;
+
+    private Map<String, Long> phaseNanos;
+
+    private List<Long> importJobIds;
+
+    private Timer timer;
+
+    /**
+     * @since 0.1.0
+     */
+    ImportProgress(List<String> fileUrls) {
+        checkNotNull(fileUrls);
+        this.totalFiles = fileUrls.size();
+        this.sizes = new long[totalFiles];
+        for (int i = 0; i < totalFiles; i++) {
+            File local = FileStager.localXmlFile(fileUrls.get(i));
+            sizes[i] = local == null ? -1 : local.length();
+        }
+        this.phaseNanos = new LinkedHashMap<>();
+        this.importJobIds = new ArrayList<>();
+    }
+
+    /**
+     * Starts logging progress every {@code periodSeconds}
+     *
+     * @since 0.1.0
+     */
+    synchronized void start(long periodSeconds) {
+        startNanos = System.nanoTime();
+        timer = new Timer("divercli-import-progress", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                LOG.info(ImportProgress.this.toString());
+            }
+        }, periodSeconds * 1000, periodSeconds * 1000);
+    }
+
+    /**
+     * Ends current phase, if any, and starts {@code name} one.
+     *
+     * @since 0.1.0
+     */
+    synchronized void phase(String name) {
+        checkNotEmpty(name, "Invalid phase name!");
+        endPhase();
+        phase = name;
+        phaseStartNanos = System.nanoTime();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private void endPhase() {
+        if (phase != null) {
+            Long spent = phaseNanos.get(phase);
+            phaseNanos.put(phase, (spent == null ? 0 : spent) + System.nanoTime() - phaseStartNanos);
+            phase = null;
+        }
+    }
+
+    /**
+     * Records size of file at index {@code i}, once it is known.
+     *
+     * @since 0.1.0
+     */
+    synchronized void sized(int i, long bytes) {
+        sizes[i] = bytes;
+    }
+
+    /**
+     * Records file at index {@code i} was written into the db.
+     *
+     * @since 0.1.0
+     */
+    synchronized void fileDone(int i) {
+        filesDone += 1;
+        if (sizes[i] > 0) {
+            bytesDone += sizes[i];
+        }
+    }
+
+    /**
+     * Records import jobs created by the import
+     *
+     * @since 0.1.0
+     */
+    synchronized void importJobs(List<ImportJob> jobs) {
+        if (jobs != null) {
+            for (ImportJob job : jobs) {
+                importJobIds.add(job.getId());
+            }
+        }
+    }
+
+    /**
+     * Stops logging progress and ends current phase.
+     *
+     * @since 0.1.0
+     */
+    synchronized void stop() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        endPhase();
+    }
+
+    /**
+     * Returns time spent in each phase, like
+     * {@code Phase timings: fetch 2.1s, import 1m 3s, augment 12.0s}
+     *
+     * @since 0.1.0
+     */
+    synchronized String phaseTimings() {
+        StringBuilder sb = new StringBuilder("Phase timings: ");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : phaseNanos.entrySet()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey())
+              .append(' ')
+              .append(DiverCli.formatElapsed(entry.getValue()));
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stores {@link #phaseTimings()} in the log of the import jobs created by
+     * the import, so {@code import-show} displays them.
+     *
+     * @since 0.1.0
+     */
+    void saveTimings(Diversicon diversicon) {
+        String timings = phaseTimings();
+        List<Long> ids;
+        synchronized (this) {
+            ids = new ArrayList<>(importJobIds);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Session session = diversicon.getSession();
+        Transaction tx = session.beginTransaction();
+        try {
+            for (Long id : ids) {
+                ImportJob job = diversicon.getImportJob(id);
+                job.addLogMessage(new LogMessage(job, org.slf4j.event.Level.INFO, timings));
+                session.saveOrUpdate(job);
+            }
+            tx.commit();
+        } catch (RuntimeException ex) {
+            tx.rollback();
+            LOG.error("Couldn't store phase timings in import jobs " + ids, ex);
+        }
+    }
+
+    /**
+     * Returns a line like
+     * {@code Progress: import, 3/10 files, 120 MB of 400 MB, 2.1 MB/s, ETA 2m 13s}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public synchronized String toString() {
+        long elapsed = System.nanoTime() - startNanos;
+        long totalBytes = 0;
+        boolean sizesKnown = true;
+        for (long size : sizes) {
+            if (size < 0) {
+                sizesKnown = false;
+            } else {
+                totalBytes += size;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder("Progress: ").append(phase == null ? "-" : phase)
+                                                          .append(", ")
+                                                          .append(filesDone)
+                                                          .append('/')
+                                                          .append(totalFiles)
+                                                          .append(" files, ")
+                                                          .append(megabytes(bytesDone))
+                                                          .append(" MB");
+        if (sizesKnown) {
+            sb.append(" of ")
+              .append(megabytes(totalBytes))
+              .append(" MB");
+        }
+        double seconds = Math.max(elapsed, 1) / 1000000000.0;
+        double rate = bytesDone / seconds;
+        sb.append(", ")
+          .append(String.format(Locale.ROOT, "%.1f", rate / (1024 * 1024)))
+          .append(" MB/s");
+        if (sizesKnown && bytesDone > 0) {
+            long etaNanos = (long) ((totalBytes - bytesDone) / rate * 1000000000.0);
+            sb.append(", ETA ")
+              .append(DiverCli.formatElapsed(etaNanos));
+        }
+        sb.append(", elapsed ")
+          .append(DiverCli.formatElapsed(elapsed));
+        return sb.toString();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
@@ -0,0 +1,149 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.core.Diversicon;
+import eu.kidf.diversicon.core.Diversicons;
+
+/**
+ * Measures an import: elapsed time, peak heap and, for H2 dbs, rows written
+ * per second. Meant to compare runs with different settings, like
+ * {@code --batch-size}.
+ *
+ * @since 0.1.0
+ */
+class ImportStats {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportStats.class);
+
+    private Diversicon diversicon;
+
+    private boolean countRows;
+
+    private long startNanos;
+
+    private long startRows;
+
+    /**
+     * @since 0.1.0
+     */
+    private ImportStats(Diversicon diversicon) {
+        this.diversicon = diversicon;
+        this.countRows = Diversicons.isH2Db(diversicon.getDivConfig()
+                                                      .getDbConfig());
+    }
+
+    /**
+     * Starts measuring, resetting heap peak usage of the JVM.
+     *
+     * @since 0.1.0
+     */
+    static ImportStats start(Diversicon diversicon) {
+        checkNotNull(diversicon);
+        ImportStats ret = new ImportStats(diversicon);
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+        }
+        ret.startRows = ret.countRows ? ret.rows() : -1;
+        ret.startNanos = System.nanoTime();
+        return ret;
+    }
+
+    /**
+     * Logs the measures taken since {@link #start(Diversicon)}
+     *
+     * @since 0.1.0
+     */
+    void log() {
+        long elapsed = System.nanoTime() - startNanos;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            peakHeap += pool.getPeakUsage()
+                            .getUsed();
+        }
+
+        StringBuilder sb = new StringBuilder("Import took ").append(DiverCli.formatElapsed(elapsed));
+        if (countRows) {
+            long written = rows() - startRows;
+            double seconds = Math.max(elapsed, 1) / 1000000000.0;
+            sb.append(", wrote ")
+              .append(written)
+              .append(" rows (")
+              .append(String.format(Locale.ROOT, "%.0f", written / seconds))
+              .append(" rows/s)");
+        }
+        sb.append(", peak heap ")
+          .append(peakHeap / (1024 * 1024))
+          .append(" MB");
+        LOG.info(sb.toString());
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> ret = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (MemoryType.HEAP.equals(pool.getType()) && pool.isValid()) {
+                ret.add(pool);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the total number of rows in user tables. In H2 counting is
+     * cheap, as tables keep their row count.
+     *
+     * @since 0.1.0
+     */
+    private long rows() {
+        final long[] ret = { 0 };
+        try {
+            diversicon.getSession()
+                      .doWork(new Work() {
+                          @Override
+                          public void execute(Connection connection) throws SQLException {
+                              DatabaseMetaData meta = connection.getMetaData();
+                              String quote = meta.getIdentifierQuoteString();
+                              List<String> tables = new ArrayList<>();
+                              try (ResultSet rs = meta.getTables(null, null, "%", new String[] { "TABLE" })) {
+                                  while (rs.next()) {
+                                      tables.add(quote + rs.getString("TABLE_SCHEM") + quote + "." + quote
+                                              + rs.getString("TABLE_NAME") + quote);
+                                  }
+                              }
+                              try (Statement st = connection.createStatement()) {
+                                  for (String table : tables) {
+                                      try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                                          rs.next();
+                                          ret[0] += rs.getLong(1);
+                                      }
+                                  }
+                              }
+                          }
+                      });
+        } catch (RuntimeException ex) {
+            LOG.debug("Couldn't count db rows, won't report them.", ex);
+            countRows = false;
+        }
+        return ret[0];
+    }
+}
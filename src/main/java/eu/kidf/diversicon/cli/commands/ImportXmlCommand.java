@@ -1,13 +1,24 @@
 package eu.kidf.diversicon.cli.commands;
 
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
 import static eu.kidf.diversicon.core.internal.Internals.checkNotBlank;
 import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
 
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.beust.jcommander.Parameter;
@@ -15,7 +26,9 @@ import com.beust.jcommander.Parameters;
 
 import eu.kidf.diversicon.cli.DiverCli;
 import eu.kidf.diversicon.cli.ImportAppender;
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
 import eu.kidf.diversicon.core.ImportConfig;
+import eu.kidf.diversicon.core.ImportJob;
 import eu.kidf.diversicon.data.Smartphones;
 
 /**
@@ -32,6 +45,15 @@ public class ImportXmlCommand implements DiverCliCommand {
      */
     public static final String CMD = "import-xml";
 
+    private static final Logger LOG = LoggerFactory.getLogger(ImportXmlCommand.class);
+
+    /**
+     * Directory in project dir where entry hashes of delta imports are stored
+     * 
+     * @since 0.1.0
+     */
+    static final String DELTA_DIR = DiverCli.CMD + "-delta";
+
     @Parameter(names = { "--author", "-a" }, required = true, description = "The author of the operations on the db.")
     private String author;
 
@@ -49,6 +71,57 @@ public class ImportXmlCommand implements DiverCliCommand {
     @Parameter(names = { "--force", "-f" }, description = "Forces import even on warnings (in particular, missing external references).")
     boolean force = false;
 
+    @Parameter(names = { "--jobs", "-j" }, description = "Number of files to fetch and extract in parallel before"
+            + " writing them into the db one at a time. Useful when importing many remote or compressed resources.")
+    int jobs = 1;
+
+    @Parameter(names = { "--prefetch" }, description = "Number of files to fetch and extract in background while"
+            + " the current one is written into the db. If 0, each file is prepared after the previous one is"
+            + " written, or with --jobs greater than 1 all of them are prepared ahead.")
+    int prefetch = 0;
+
+    @Parameter(names = { "--prefetch-max-mb" }, description = "Disk space in megabytes that prefetched files"
+            + " waiting to be imported should not exceed.")
+    long prefetchMaxMb = 1024;
+
+    @Parameter(names = { "--batch-size" }, description = "Number of inserts sent to the db in a single JDBC batch,"
+            + " ordering them by entity. Overrides " + DiverCli.BATCH_SIZE_PROPERTY + " in ini files."
+            + " In shell or serve sessions a different size than the current connection reconnects to the db."
+            + " If 0, uses ini setting.")
+    int batchSize = 0;
+
+    @Parameter(names = { "--resume" }, description = "Resumes the failed import with given id, skipping files"
+            + " already committed. Same files must be given in the same order. Imports of many files are"
+            + " resumable, as each file is committed in its own job. A single file is always imported again from"
+            + " its start.")
+    Long resume = null;
+
+    @Parameter(names = { "--delta" }, description = "Appends to a lexical resource only the entries not"
+            + " written by previous --delta imports of it, comparing content hashes stored in the project."
+            + " Files are imported one per job. Entries changed or removed since are only reported: they are"
+            + " neither updated nor deleted in the db.")
+    boolean delta = false;
+
+    @Parameter(names = { "--bulk" }, description = "Drops secondary indexes before writing and rebuilds them"
+            + " at the end, before augmenting the graph. Much faster for big loads into an H2 db, like a first"
+            + " import into an empty one. If the import fails indexes are rebuilt anyway, if the process dies"
+            + " they are rebuilt on next connection. Can't be used in a --dry-run.")
+    boolean bulk = false;
+
+    @Parameter(names = { "--progress-every" }, description = "Seconds between progress reports, with current"
+            + " phase, files and bytes done, throughput and estimated time left. If 0, progress is not reported.")
+    int progressEvery = 10;
+
+    @Parameter(names = { "--shadow" }, description = "With --dry-run, only streams the files checking their"
+            + " references and ids against the db with read only queries, without running the importer nor"
+            + " locking the db. Fails on ids already in the db and, unless --force is given, on missing references.")
+    boolean shadow = false;
+
+    @Parameter(names = { "--max-log-messages" }, description = "Maximum number of distinct warnings and errors"
+            + " stored in the log of each import job, further ones are only counted. Repetitions of the same"
+            + " message with different arguments are stored as a single summary.")
+    int maxLogMessages = ImportAppender.DEFAULT_MAX_STORED;
+
     @Parameter(required = true, variableArity = true, description = "a space separated list of XML files in UBY-LMF format."
             + " Lexical resources must have a 'name' attribute. If there are already present resources with the"
             + " same name, content will be merged.")
@@ -59,6 +132,9 @@ public class ImportXmlCommand implements DiverCliCommand {
     @Nullable
     private ImportConfig importConfig;
 
+    @Nullable
+    private ImportProgress progress;
+
     private DiverCli diverCli;
 
     /**
@@ -77,20 +153,50 @@ public class ImportXmlCommand implements DiverCliCommand {
     @Override
     public void configure() {
 
+        for (int i = 0; i < importXmlPaths.size(); i++) {
+            importXmlPaths.set(i, diverCli.resolvePath(importXmlPaths.get(i)));
+        }
+
         checkNotBlank(author, "Tried to import files without '--author' parameter! ");
 
         checkNotBlank(description, "Tried to import files without '--description' parameter! ");
-        importConfig = new ImportConfig()
-                            .setAuthor(author)
-                            .setDescription(description)
-                            .setSkipAugment(skipAugment)
-                            .setForce(force)
-                            .setDryRun(dryRun);
+        
+        checkArgument(jobs > 0, "Number of jobs must be positive, found instead " + jobs);
+        
+        checkArgument(prefetch >= 0, "Prefetch can't be negative, found instead " + prefetch);
+        
+        checkArgument(prefetchMaxMb > 0, "Prefetch max megabytes must be positive, found instead " + prefetchMaxMb);
+        
+        checkArgument(batchSize >= 0, "Batch size can't be negative, found instead " + batchSize);
+        
+        checkArgument(progressEvery >= 0, "Progress interval can't be negative, found instead " + progressEvery);
+        checkArgument(maxLogMessages >= 0, "Max log messages can't be negative, found instead " + maxLogMessages);
+        
+        checkArgument(!shadow || dryRun, "--shadow can only be used in a --dry-run!");
+        
+        checkArgument(!bulk || !dryRun, "--bulk can't be used in a --dry-run!");
+        
+        checkArgument(!delta || (prefetch == 0 && resume == null),
+                "--delta can't be combined with --prefetch nor --resume!");
+        
+        checkArgument(resume == null || resume >= 0, "Invalid import id to resume! Must be greater or equal than 0,"
+                + " found instead " + resume);
+        
+        // in bulk mode graph is augmented only once indexes are back
+        importConfig = newImportConfig(skipAugment || bulk);
 
-        for (String fileUrl : importXmlPaths) {
-            importConfig.addLexResFileUrl(fileUrl);
-        }
+    }
 
+    /**
+     * @since 0.1.0
+     */
+    private ImportConfig newImportConfig(boolean skipAugmentFlag) {
+        return new ImportConfig()
+                .setAuthor(author)
+                .setDescription(description)
+                .setSkipAugment(skipAugmentFlag)
+                .setForce(force)
+                .setDryRun(dryRun);
     }
 
     /**
@@ -100,9 +206,152 @@ public class ImportXmlCommand implements DiverCliCommand {
      */
     @Override
     public void run() {
+        if (shadow) {
+            runShadow();
+            return;
+        }
+        if (batchSize > 0) {
+            diverCli.setBatchSize(batchSize);
+        }
+        // dry runs write nothing, reducing durability would only risk the db
+        if (!dryRun && !diverCli.isConnected() && diverCli.isFastLoad()) {
+            diverCli.beginFastLoad();
+        }
         diverCli.connect();
 
-        ImportAppender importAppender = new ImportAppender(diverCli.getDiversicon());
+        progress = new ImportProgress(importXmlPaths);
+        if (progressEvery > 0) {
+            progress.start(progressEvery);
+        }
+        try {
+            ImportStats stats = ImportStats.start(diverCli.getDiversicon());
+            if (bulk) {
+                diverCli.dropSecondaryIndexes();
+            }
+            try {
+                if (delta) {
+                    runDelta();
+                } else if (importXmlPaths.size() > 1 || resume != null) {
+                    runPipelined();
+                } else {
+                    runSingleJob();
+                }
+            } finally {
+                if (bulk) {
+                    progress.phase(ImportProgress.INDEXES);
+                    diverCli.restoreSecondaryIndexes();
+                }
+            }
+            if (bulk) {
+                augment();
+            }
+            progress.stop();
+            stats.log();
+            LOG.info(progress.phaseTimings());
+            if (!dryRun) {
+                progress.saveTimings(diverCli.getDiversicon());
+            }
+        } finally {
+            progress.stop();
+            diverCli.endFastLoad();
+        }
+    }
+
+    /**
+     * Dry run which doesn't go through the importer: files are streamed by a
+     * {@link ShadowCheck}, which then looks up ids in the db. If already
+     * connected the session connection is reused, otherwise a read only one
+     * is opened, so the db is never locked.
+     * 
+     * @throws DiverCliException
+     *             if problems are found
+     * 
+     * @since 0.1.0
+     */
+    private void runShadow() {
+        long start = System.nanoTime();
+        final ShadowCheck check = new ShadowCheck();
+        try (FileStager stager = new FileStager()) {
+            for (int i = 0; i < importXmlPaths.size(); i++) {
+                String path = importXmlPaths.get(i);
+                LOG.info("Checking file " + (i + 1) + " of " + importXmlPaths.size() + ": " + path);
+                File xml = FileStager.localXmlFile(path);
+                if (xml == null) {
+                    xml = stager.stage(path);
+                    check.scan(xml);
+                    stager.discard(xml);
+                } else {
+                    check.scan(xml);
+                }
+            }
+        }
+
+        final ShadowCheck.Report[] report = { null };
+        if (diverCli.isConnected()) {
+            diverCli.getDiversicon()
+                    .getSession()
+                    .doWork(new Work() {
+                        @Override
+                        public void execute(Connection connection) throws SQLException {
+                            report[0] = check.check(connection);
+                        }
+                    });
+        } else {
+            try (Connection connection = diverCli.openReadOnlyConnection()) {
+                report[0] = check.check(connection);
+            } catch (SQLException ex) {
+                throw new DiverCliException("Couldn't close read only connection!", ex);
+            }
+        }
+
+        LOG.info("");
+        LOG.info("Shadow dry run done in " + DiverCli.formatElapsed(System.nanoTime() - start) + ": " + report[0]);
+        if (!report[0].getExistingResources()
+                      .isEmpty()) {
+            LOG.info("Content would be merged into existing lexical resources " + report[0].getExistingResources());
+        }
+        if (report[0].hasConflicts()) {
+            throw new DiverCliException("Shadow dry run found conflicting ids, see above.");
+        }
+        if (report[0].hasMissing()) {
+            if (force) {
+                LOG.warn("Shadow dry run found missing references, importing with --force would ignore them.");
+            } else {
+                throw new DiverCliException("Shadow dry run found missing references, see above."
+                        + " To import anyway use --force.");
+            }
+        }
+    }
+
+    /**
+     * Augments the graph, unless skipped or in a dry run.
+     * 
+     * @since 0.1.0
+     */
+    private void augment() {
+        if (!skipAugment && !dryRun) {
+            progress.phase(ImportProgress.AUGMENT);
+            LOG.info("");
+            LOG.info("Augmenting graph ...");
+            diverCli.getDiversicon()
+                    .processGraph();
+            AugmentWatermark.current(diverCli.getDiversicon())
+                            .save(diverCli.getProjectDir());
+        }
+    }
+
+    /**
+     * Imports a single file, letting the importer augment the graph.
+     * 
+     * @since 0.1.0
+     */
+    private void runSingleJob() {
+
+        for (String fileUrl : importXmlPaths) {
+            importConfig.addLexResFileUrl(fileUrl);
+        }
+
+        ImportAppender importAppender = new ImportAppender(diverCli.getDiversicon(), maxLogMessages);
 
         ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(
                 org.slf4j.Logger.ROOT_LOGGER_NAME);
@@ -110,11 +359,313 @@ public class ImportXmlCommand implements DiverCliCommand {
         importAppender.setContext(logger.getLoggerContext());
         logger.addAppender(importAppender);
 
-        diverCli.getDiversicon()
-                .importFiles(importConfig);
+        try {
+            progress.phase(ImportProgress.IMPORT);
+            List<ImportJob> importJobs = diverCli.getDiversicon()
+                                                 .importFiles(importConfig);
+            progress.importJobs(importJobs);
+            saveSummaries(importAppender);
+            for (int i = 0; i < importXmlPaths.size(); i++) {
+                progress.fileDone(i);
+            }
+            // the importer augmented the graph itself
+            if (!skipAugment && !bulk && !dryRun) {
+                AugmentWatermark.current(diverCli.getDiversicon())
+                                .save(diverCli.getProjectDir());
+            }
+        } finally {
+            logger.detachAppender(importAppender);
+        }
+
+    }
+
+    /**
+     * Imports files one per job while next ones are prefetched, augmenting the
+     * graph only at the end. Without {@link #prefetch} files are prepared one
+     * at a time, or all ahead when there are many {@link #jobs}. After each file, progress is saved in an
+     * {@link ImportCheckpoint}, so the run can be resumed.
+     * 
+     * @since 0.1.0
+     */
+    private void runPipelined() {
+
+        ImportCheckpoint checkpoint;
+        if (resume == null) {
+            checkpoint = ImportCheckpoint.create(diverCli.getProjectDir(), importXmlPaths);
+        } else {
+            checkpoint = ImportCheckpoint.load(diverCli.getProjectDir(), resume);
+            checkpoint.checkSameFiles(importXmlPaths);
+        }
+
+        final List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < importXmlPaths.size(); i++) {
+            if (checkpoint.isDone(i)) {
+                LOG.info("Skipping file " + (i + 1) + " of " + importXmlPaths.size() + ", already imported: "
+                        + importXmlPaths.get(i));
+            } else {
+                pending.add(i);
+            }
+        }
+        List<String> pendingUrls = new ArrayList<>();
+        for (int i : pending) {
+            pendingUrls.add(importXmlPaths.get(i));
+        }
+
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(
+                org.slf4j.Logger.ROOT_LOGGER_NAME);
+
+        try (FileStager stager = new FileStager();
+                ImportPipeline pipeline = new ImportPipeline(pendingUrls, stager,
+                        prefetch == 0 && jobs > 1 ? pendingUrls.size() : prefetch, jobs,
+                        prefetchMaxMb * 1024 * 1024)) {
+
+            pipeline.start();
+
+            ImportAppender importAppender = new ImportAppender(diverCli.getDiversicon(), maxLogMessages);
+            importAppender.setContext(logger.getLoggerContext());
+            logger.addAppender(importAppender);
+
+            try {
+                for (int j = 0; j < pending.size(); j++) {
+                    int i = pending.get(j);
+                    progress.phase(ImportProgress.FETCH);
+                    File file = pipeline.take(j);
+                    progress.sized(i, file.length());
+                    progress.phase(ImportProgress.IMPORT);
+                    LOG.info("");
+                    LOG.info("Importing file " + (i + 1) + " of " + importXmlPaths.size() + ": "
+                            + importXmlPaths.get(i));
+                    ImportConfig fileConfig = newImportConfig(true);
+                    fileConfig.addLexResFileUrl(file.getAbsolutePath());
+                    List<ImportJob> importJobs = diverCli.getDiversicon()
+                                                         .importFiles(fileConfig);
+                    progress.importJobs(importJobs);
+                    saveSummaries(importAppender);
+                    recordOriginalUrls(importJobs, Collections.singletonList(file.getAbsolutePath()),
+                            Collections.singletonList(importXmlPaths.get(i)));
+                    progress.fileDone(i);
+                    if (!dryRun) {
+                        checkpoint.done(i, importJobs.get(0)
+                                                     .getId());
+                    }
+                    pipeline.done(j);
+                }
+            } finally {
+                logger.detachAppender(importAppender);
+            }
+
+            if (!bulk) {
+                augment();
+            }
+        } catch (RuntimeException ex) {
+            if (checkpoint.getRunId() != null) {
+                LOG.error("Import failed, to resume it run the same command adding --resume "
+                        + checkpoint.getRunId());
+            }
+            throw ex;
+        }
+        checkpoint.delete();
+    }
+
+    /**
+     * Imports files one per job, appending only the entries not written by
+     * previous delta imports of the same lexical resource. Entries changed or
+     * removed since are only reported, as the importer can't update nor
+     * delete them. Hashes of the entries in the db are stored in
+     * {@link #DELTA_DIR} after each import.
+     * 
+     * @since 0.1.0
+     */
+    private void runDelta() {
+
+        File hashesDir = new File(diverCli.getProjectDir(), DELTA_DIR);
+        boolean imported = false;
+
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(
+                org.slf4j.Logger.ROOT_LOGGER_NAME);
+
+        try (FileStager stager = new FileStager()) {
+
+            ImportAppender importAppender = new ImportAppender(diverCli.getDiversicon(), maxLogMessages);
+            importAppender.setContext(logger.getLoggerContext());
+            logger.addAppender(importAppender);
+
+            try {
+                for (int i = 0; i < importXmlPaths.size(); i++) {
+                    String path = importXmlPaths.get(i);
+                    LOG.info("");
+                    LOG.info("Computing delta of file " + (i + 1) + " of " + importXmlPaths.size() + ": " + path);
 
-        logger.detachAppender(importAppender);
+                    progress.phase(ImportProgress.FETCH);
+                    File xml = FileStager.localXmlFile(path);
+                    if (xml == null) {
+                        xml = stager.stage(path);
+                    }
+                    progress.sized(i, xml.length());
+                    progress.phase(ImportProgress.DELTA);
+                    EntryHashes hashes = EntryHashes.of(xml);
+                    File hashesFile = new File(hashesDir, hashesFileName(hashes.getResourceName()));
+                    EntryHashes previous = EntryHashes.load(hashesFile);
 
+                    File toImport;
+                    String fileDescription;
+                    EntryHashes stored;
+                    if (previous == null) {
+                        LOG.info("No previous delta import of " + hashes.getResourceName() + ", importing all its "
+                                + hashes.size() + " entries.");
+                        toImport = xml;
+                        fileDescription = description;
+                        stored = hashes;
+                    } else {
+                        EntryHashes.Diff diff = hashes.diff(previous);
+                        LOG.info("Delta of " + hashes.getResourceName() + ": " + diff);
+                        if (!diff.getChanged()
+                                 .isEmpty()) {
+                            // the importer can't overwrite entries already in the db
+                            LOG.warn(diff.getChanged()
+                                         .size()
+                                    + " entries of " + hashes.getResourceName()
+                                    + " changed since its previous delta import, like "
+                                    + diff.getChanged()
+                                          .iterator()
+                                          .next()
+                                    + ": the db keeps their previous version, delta imports only append entries.");
+                        }
+                        if (!diff.getRemoved()
+                                 .isEmpty()) {
+                            LOG.warn(diff.getRemoved()
+                                         .size()
+                                    + " entries removed from " + hashes.getResourceName()
+                                    + " are still in the db, delta imports only append entries.");
+                        }
+                        if (diff.getAdded()
+                                .isEmpty()) {
+                            LOG.info("Nothing to append.");
+                            progress.fileDone(i);
+                            continue;
+                        }
+                        toImport = stager.newFile(FileStager.stagedName(path));
+                        hashes.writeOnly(diff.getAdded(), xml, toImport);
+                        fileDescription = description + " (delta: " + diff + ")";
+                        stored = hashes.appendedTo(previous);
+                    }
+
+                    ImportConfig fileConfig = newImportConfig(true).setDescription(fileDescription);
+                    fileConfig.addLexResFileUrl(toImport.getAbsolutePath());
+                    progress.phase(ImportProgress.IMPORT);
+                    List<ImportJob> importJobs = diverCli.getDiversicon()
+                                                         .importFiles(fileConfig);
+                    progress.importJobs(importJobs);
+                    saveSummaries(importAppender);
+                    recordOriginalUrls(importJobs, Collections.singletonList(toImport.getAbsolutePath()),
+                            Collections.singletonList(path));
+                    progress.fileDone(i);
+                    imported = true;
+                    if (!dryRun) {
+                        stored.save(hashesFile);
+                    }
+                    stager.discard(toImport);
+                }
+            } finally {
+                logger.detachAppender(importAppender);
+            }
+
+            if (imported && !bulk) {
+                augment();
+            }
+        }
+    }
+
+    /**
+     * Records in import jobs the summaries of log messages repeated or
+     * dropped by {@code importAppender}, as in dry runs jobs are not written
+     * they are only reported.
+     * 
+     * @since 0.1.0
+     */
+    private void saveSummaries(ImportAppender importAppender) {
+        int dropped = importAppender.getDropped();
+        if (dropped > 0) {
+            LOG.warn("Dropped " + dropped + " log messages, import jobs store at most " + maxLogMessages
+                    + " distinct ones.");
+        }
+        if (dryRun) {
+            importAppender.clearSummaries();
+        } else {
+            importAppender.saveSummaries();
+        }
+    }
+
+    /**
+     * Import jobs record the files given to the importer, which may be
+     * temporary copies deleted at the end of the command: this puts back in
+     * the jobs the urls given by the user. Failures are only logged.
+     * 
+     * @param importedUrls
+     *            the urls given to the importer, in the same order of
+     *            {@code importJobs}
+     * @param originalUrls
+     *            the urls given by the user, in the same order of
+     *            {@code importedUrls}
+     * 
+     * @since 0.1.0
+     */
+    private void recordOriginalUrls(List<ImportJob> importJobs, List<String> importedUrls,
+            List<String> originalUrls) {
+        if (dryRun || importedUrls.equals(originalUrls)) {
+            return;
+        }
+        if (importJobs.size() != importedUrls.size()) {
+            LOG.debug("Expected one import job per file, found " + importJobs.size() + " jobs for "
+                    + importedUrls.size() + " files, not recording original urls.");
+            return;
+        }
+        Session session = diverCli.getDiversicon()
+                                  .getSession();
+        Transaction tx = session.beginTransaction();
+        try {
+            for (int i = 0; i < importJobs.size(); i++) {
+                if (!importedUrls.get(i)
+                                 .equals(originalUrls.get(i))) {
+                    ImportJob job = diverCli.getDiversicon()
+                                            .getImportJob(importJobs.get(i)
+                                                                    .getId());
+                    job.setFileUrl(originalUrls.get(i));
+                    session.saveOrUpdate(job);
+                }
+            }
+            tx.commit();
+        } catch (RuntimeException ex) {
+            tx.rollback();
+            LOG.error("Couldn't record original file urls " + originalUrls + " in import jobs!", ex);
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    static String hashesFileName(String resourceName) {
+        return resourceName.replaceAll("[^A-Za-z0-9._-]", "_") + ".properties";
+    }
+
+    /**
+     * @throws DiverCliException
+     * 
+     * @since 0.1.0
+     */
+    static <T> T waitStaged(Future<T> future, String path) {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new DiverCliException("Error while preparing " + path, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new DiverCliException("Interrupted while preparing " + path, ex);
+        }
     }
 
     /**
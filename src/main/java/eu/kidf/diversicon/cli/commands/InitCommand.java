@@ -56,6 +56,11 @@ public class InitCommand implements DiverCliCommand {
             + "which can be compressed and expressed as a URL. For Wordnet 3.1 packaged dump, you can use "
     + DivWn31.H2DB_URI)
     String restoreH2DbPath;       
+
+    @Parameter(names = { "--fast-load" }, description = "Loads the database with reduced durability, which is much"
+            + " faster but may corrupt it on crash. Sets " + DiverCli.FAST_LOAD_PROPERTY + " in project "
+            + DiverCli.INI_FILENAME + ", so following imports are fast too. Only for databases which can be rebuilt.")
+    boolean fastLoad = false;
     
     private File prjFolder;
     private File prjIniFile;
@@ -102,6 +107,13 @@ public class InitCommand implements DiverCliCommand {
                     + restoreSqlPath);
         }     
         
+        if (!Internals.isBlank(restoreSqlPath)) {
+            restoreSqlPath = cli.resolvePath(restoreSqlPath);
+        }
+        if (!Internals.isBlank(restoreH2DbPath)) {
+            restoreH2DbPath = cli.resolvePath(restoreH2DbPath);
+        }
+        
                 
     }
     
@@ -147,6 +159,11 @@ public class InitCommand implements DiverCliCommand {
                 targetDbPath, false);                         
                 
         cli.setDbConfig(dbCfg);
+        
+        // if loading fails, fast load is ended on disconnection
+        if (fastLoad) {
+            cli.beginFastLoad();
+        }
                 
         if (!Internals.isBlank(restoreH2DbPath)){            
             Diversicons.h2RestoreDb(restoreH2DbPath, targetDbPath);    
@@ -194,7 +211,7 @@ public class InitCommand implements DiverCliCommand {
                 System.setOut(new PrintStream(
                         new OutputStream() { @Override public void write(int b) { }}
                         ));
-                Diversicons.dropCreateTables(dbCfg);            
+                Diversicons.dropCreateTables(cli.divConfig().getDbConfig());            
             } finally {
                 System.setOut(savedOut);
                 int i = 0;
@@ -212,6 +229,8 @@ public class InitCommand implements DiverCliCommand {
         }                                                                               
                
         
+        cli.endFastLoad();
+        
         Internals.copyDirFromResource(DiverCli.class,
                 DiverCli.TEMPLATES_DIR + Diversicons.getDatabaseId(dbCfg),
                 prjFolder);
@@ -225,6 +244,9 @@ public class InitCommand implements DiverCliCommand {
             prjIni.put(DiverCli.DATABASE_SECTION_INI, "jdbc_url", dbCfg.getJdbc_url());
             prjIni.put(DiverCli.DATABASE_SECTION_INI, "user", dbCfg.getUser());
             prjIni.put(DiverCli.DATABASE_SECTION_INI, "password", dbCfg.getPassword());
+            if (fastLoad) {
+                prjIni.put(DiverCli.DATABASE_SECTION_INI, DiverCli.FAST_LOAD_PROPERTY, "true");
+            }
             prjIni.store();
         } catch (IOException ex) {
             throw new DiverCliIoException(
@@ -0,0 +1,509 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.Nullable;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.core.Diversicon;
+import eu.kidf.diversicon.core.Diversicons;
+
+/**
+ * Augments the graph like {@link Diversicon#processGraph()}, computing the
+ * transitive closure of each canonical transitive relation in memory on
+ * several threads.
+ *
+ * <p>
+ * Direct edges of a relation, plus the reversed edges of its inverse, are
+ * loaded into int adjacency arrays (CSR form) with synset ids encoded as
+ * ints. Each synset is then visited breadth first from a fork join pool, so
+ * every reachable synset gets the depth of its shortest path. Inverse edges
+ * missing their canonical counterpart are written with depth 1, reachable
+ * synsets with depth greater than 1. Inferred edges written by previous
+ * augmentations are replaced.
+ * </p>
+ *
+ * <p>
+ * When given the id of the last relation seen by a previous augmentation,
+ * only synsets reaching a relation added afterwards are visited again, and
+ * only their inferred edges are replaced. Relations are never deleted by
+ * imports, so these are the only closure edges which may change.
+ * </p>
+ *
+ * <p>
+ * Writing goes through the db session with an {@link EdgeWriter}, so it
+ * happens on the calling thread only.
+ * </p>
+ *
+ * @since 0.1.0
+ */
+class ParallelClosure {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelClosure.class);
+
+    /**
+     * Minimum number of roots visited by a single task
+     */
+    private static final int MIN_ROOTS_PER_TASK = 256;
+
+    /**
+     * Max number of synset ids in a single delete
+     */
+    private static final int DELETE_CHUNK = 500;
+
+    private Diversicon diversicon;
+
+    private int parallelism;
+
+    /**
+     * Relations with greater id were added after last augmentation, if null
+     * the whole graph is augmented
+     */
+    @Nullable
+    private Long lastRelationId;
+
+    /**
+     * Augments the whole graph
+     *
+     * @since 0.1.0
+     */
+    ParallelClosure(Diversicon diversicon, int parallelism) {
+        this(diversicon, parallelism, null);
+    }
+
+    /**
+     * @param lastRelationId
+     *            id of the last relation seen by previous augmentation, if
+     *            null augments the whole graph.
+     *
+     * @since 0.1.0
+     */
+    ParallelClosure(Diversicon diversicon, int parallelism, @Nullable Long lastRelationId) {
+        checkNotNull(diversicon);
+        checkArgument(parallelism > 0, "Parallelism must be positive, found instead " + parallelism);
+        this.diversicon = diversicon;
+        this.parallelism = parallelism;
+        this.lastRelationId = lastRelationId;
+    }
+
+    /**
+     * Augments all canonical transitive relations in a single transaction.
+     *
+     * @return the number of written edges
+     *
+     * @since 0.1.0
+     */
+    long run() {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Session session = diversicon.getSession();
+        Transaction tx = session.beginTransaction();
+        try {
+            long written = 0;
+            for (String relName : Diversicons.getCanonicalTransitiveRelations()) {
+                written += augment(session, pool, relName);
+            }
+            tx.commit();
+            return written;
+        } catch (RuntimeException ex) {
+            tx.rollback();
+            throw ex;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of written edges
+     *
+     * @since 0.1.0
+     */
+    private long augment(Session session, ForkJoinPool pool, String relName) {
+        long start = System.nanoTime();
+
+        Graph graph = new Graph(lastRelationId);
+        graph.load(session, relName, false);
+        if (Diversicons.hasInverse(relName)) {
+            graph.load(session, Diversicons.getInverse(relName), true);
+        }
+        int[] roots = lastRelationId == null ? graph.allSynsets() : graph.affectedSynsets();
+        if (roots.length == 0) {
+            LOG.info("No new " + relName + " relations to augment.");
+            return 0;
+        }
+        int edges = graph.edges();
+        int[][] csr = graph.toCsr();
+        long loaded = System.nanoTime();
+
+        IntList closure = pool.invoke(new RootsTask(csr[0], csr[1], roots, 0, roots.length,
+                Math.max(MIN_ROOTS_PER_TASK, roots.length / (parallelism * 8))));
+        long computed = System.nanoTime();
+
+        String delete = "delete from DivSynsetRelation where relName = :relName and depth > 1"
+                + " and provenance = :provenance";
+        if (lastRelationId == null) {
+            session.createQuery(delete)
+                   .setParameter("relName", relName)
+                   .setParameter("provenance", Diversicon.getProvenanceId())
+                   .executeUpdate();
+        } else {
+            for (int i = 0; i < roots.length; i += DELETE_CHUNK) {
+                List<String> ids = new ArrayList<>();
+                for (int j = i; j < Math.min(i + DELETE_CHUNK, roots.length); j++) {
+                    ids.add(graph.ids.get(roots[j]));
+                }
+                session.createQuery(delete + " and source.id in (:ids)")
+                       .setParameter("relName", relName)
+                       .setParameter("provenance", Diversicon.getProvenanceId())
+                       .setParameterList("ids", ids)
+                       .executeUpdate();
+            }
+        }
+
+        EdgeWriter writer = new EdgeWriter(session, relName);
+        for (int i = 0; i < graph.normalized.size(); i += 2) {
+            writer.write(graph.ids.get(graph.normalized.get(i)), graph.ids.get(graph.normalized.get(i + 1)), 1);
+        }
+        for (int i = 0; i < closure.size(); i += 3) {
+            writer.write(graph.ids.get(closure.get(i)), graph.ids.get(closure.get(i + 1)), closure.get(i + 2));
+        }
+        writer.flush();
+
+        LOG.info("Augmented " + relName + ": " + roots.length + " of " + graph.size() + " synsets, "
+                + edges + " direct edges, "
+                + graph.normalized.size() / 2 + " normalized and " + closure.size() / 3
+                + " inferred edges. Loaded in " + DiverCli.formatElapsed(loaded - start) + ", computed in "
+                + DiverCli.formatElapsed(computed - loaded) + ", written in "
+                + DiverCli.formatElapsed(System.nanoTime() - computed));
+        return writer.getWritten();
+    }
+
+    /**
+     * Direct edges of a relation with dictionary encoded synset ids
+     *
+     * @since 0.1.0
+     */
+    private static class Graph {
+
+        private Map<String, Integer> codes = new HashMap<>();
+
+        private List<String> ids = new ArrayList<>();
+
+        private IntList sources = new IntList();
+
+        private IntList targets = new IntList();
+
+        /**
+         * Edges present in the db, as {@code source << 32 | target}
+         */
+        private Set<Long> direct = new HashSet<>();
+
+        /**
+         * Source and target of inverse edges missing their canonical one
+         */
+        private IntList normalized = new IntList();
+
+        /**
+         * Sources of edges added after last augmentation
+         */
+        private IntList changed = new IntList();
+
+        @Nullable
+        private Long lastRelationId;
+
+        /**
+         * @since 0.1.0
+         */
+        Graph(@Nullable Long lastRelationId) {
+            this.lastRelationId = lastRelationId;
+        }
+
+        /**
+         * Loads direct edges named {@code relName}, reversing them if
+         * {@code inverse}. Must be called for the canonical relation first.
+         *
+         * @since 0.1.0
+         */
+        void load(Session session, String relName, boolean inverse) {
+            ScrollableResults rs = session.createQuery("select sr.source.id, sr.target.id, sr.id"
+                    + " from DivSynsetRelation sr where sr.relName = :relName and sr.depth = 1")
+                                          .setParameter("relName", relName)
+                                          .setReadOnly(true)
+                                          .setFetchSize(10000)
+                                          .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (rs.next()) {
+                    Object[] row = rs.get();
+                    int source = code((String) (inverse ? row[1] : row[0]));
+                    int target = code((String) (inverse ? row[0] : row[1]));
+                    long key = ((long) source << 32) | target;
+                    if (inverse) {
+                        if (direct.contains(key)) {
+                            continue;
+                        }
+                        normalized.add(source);
+                        normalized.add(target);
+                    }
+                    if (direct.add(key)) {
+                        sources.add(source);
+                        targets.add(target);
+                        // normalized edges are going to be written, so they are new anyway
+                        if (inverse || (lastRelationId != null && ((Number) row[2]).longValue() > lastRelationId)) {
+                            changed.add(source);
+                        }
+                    }
+                }
+            } finally {
+                rs.close();
+            }
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        private int code(String id) {
+            Integer ret = codes.get(id);
+            if (ret == null) {
+                ret = ids.size();
+                codes.put(id, ret);
+                ids.add(id);
+            }
+            return ret;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        int size() {
+            return ids.size();
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        int edges() {
+            return sources.size();
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        int[] allSynsets() {
+            int[] ret = new int[size()];
+            for (int i = 0; i < ret.length; i++) {
+                ret[i] = i;
+            }
+            return ret;
+        }
+
+        /**
+         * Returns synsets reaching the source of a changed edge, sources
+         * included, visiting edges backwards.
+         *
+         * @since 0.1.0
+         */
+        int[] affectedSynsets() {
+            int[][] reverse = csr(size(), targets, sources);
+            boolean[] affected = new boolean[size()];
+            int[] queue = new int[size()];
+            int tail = 0;
+            for (int i = 0; i < changed.size(); i++) {
+                if (!affected[changed.get(i)]) {
+                    affected[changed.get(i)] = true;
+                    queue[tail++] = changed.get(i);
+                }
+            }
+            int head = 0;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int i = reverse[0][u]; i < reverse[0][u + 1]; i++) {
+                    int v = reverse[1][i];
+                    if (!affected[v]) {
+                        affected[v] = true;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            return Arrays.copyOf(queue, tail);
+        }
+
+        /**
+         * Returns offsets of each synset successors, and successors. Edges
+         * are not kept afterwards.
+         *
+         * @since 0.1.0
+         */
+        int[][] toCsr() {
+            int[][] ret = csr(size(), sources, targets);
+            // not needed anymore, closure may take lots of memory
+            direct = null;
+            sources = null;
+            targets = null;
+            changed = null;
+            return ret;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        private static int[][] csr(int n, IntList from, IntList to) {
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < from.size(); i++) {
+                offsets[from.get(i) + 1] += 1;
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] successors = new int[from.size()];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int i = 0; i < from.size(); i++) {
+                successors[next[from.get(i)]++] = to.get(i);
+            }
+            return new int[][] { offsets, successors };
+        }
+    }
+
+    /**
+     * Visits breadth first from {@code roots[from, to)}, returning
+     * source, target and depth of each synset reachable with depth greater
+     * than 1.
+     *
+     * @since 0.1.0
+     */
+    private static class RootsTask extends RecursiveTask<IntList> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] offsets;
+        private final int[] successors;
+        private final int[] roots;
+        private final int from;
+        private final int to;
+        private final int rootsPerTask;
+
+        /**
+         * @since 0.1.0
+         */
+        RootsTask(int[] offsets, int[] successors, int[] roots, int from, int to, int rootsPerTask) {
+            this.offsets = offsets;
+            this.successors = successors;
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+            this.rootsPerTask = rootsPerTask;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        @Override
+        protected IntList compute() {
+            if (to - from > rootsPerTask) {
+                int mid = (from + to) >>> 1;
+                RootsTask left = new RootsTask(offsets, successors, roots, from, mid, rootsPerTask);
+                left.fork();
+                IntList ret = new RootsTask(offsets, successors, roots, mid, to, rootsPerTask).compute();
+                IntList leftRet = left.join();
+                leftRet.addAll(ret);
+                return leftRet;
+            }
+
+            int n = offsets.length - 1;
+            // visited[v] == root + 1 when v was reached from root
+            int[] visited = new int[n];
+            int[] depths = new int[n];
+            int[] queue = new int[n];
+            IntList ret = new IntList();
+
+            for (int r = from; r < to; r++) {
+                int root = roots[r];
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = root;
+                visited[root] = root + 1;
+                depths[root] = 0;
+                while (head < tail) {
+                    int u = queue[head++];
+                    for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                        int v = successors[i];
+                        if (visited[v] != root + 1) {
+                            visited[v] = root + 1;
+                            depths[v] = depths[u] + 1;
+                            queue[tail++] = v;
+                            if (depths[v] > 1) {
+                                ret.add(root);
+                                ret.add(v);
+                                ret.add(depths[v]);
+                            }
+                        }
+                    }
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Growable array of ints
+     *
+     * @since 0.1.0
+     */
+    private static class IntList {
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        /**
+         * @since 0.1.0
+         */
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        int get(int i) {
+            return values[i];
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        int size() {
+            return size;
+        }
+    }
+}
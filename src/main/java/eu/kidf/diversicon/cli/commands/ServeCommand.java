@@ -0,0 +1,72 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.DiverCliClient;
+import eu.kidf.diversicon.cli.DiverCliServer;
+
+/**
+ * Starts a server which keeps projects connected and runs commands sent by
+ * {@link DiverCliClient}
+ *
+ * @since 0.1.0
+ *
+ */
+@Parameters(separators = "=", commandDescription = "Keeps running and serves commands issued with "
+        + DiverCliClient.CMD + ", reusing for each project the same db connection.")
+public class ServeCommand implements DiverCliCommand {
+
+    /**
+     * @since 0.1.0
+     */
+    public static final String CMD = "serve";
+
+    @Parameter(names = { "--port", "-p" }, description = "The loopback port to listen to. If 0 a free port is chosen.")
+    private int port = 0;
+
+    private DiverCli diverCli;
+
+    /**
+     * @since 0.1.0
+     */
+    public ServeCommand(DiverCli diverCli) {
+        checkNotNull(diverCli);
+        this.diverCli = diverCli;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void configure() {
+        checkArgument(port >= 0 && port <= 65535, "Invalid port: " + port);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void run() {
+        new DiverCliServer(port, diverCli.findServerFile()).serve();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public String getName() {
+        return CMD;
+    }
+
+}
@@ -0,0 +1,439 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkArgument;
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.exceptions.DiverCliException;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+
+/**
+ * Checks files to import without running the importer: XML is streamed to
+ * collect ids of synsets, senses and lexical entries and the references to
+ * them, which are then looked up in the db with read only queries.
+ * 
+ * <p>
+ * Reports ids defined twice in the files, ids already present in the db and
+ * references resolved neither by the files nor by the db. Only the most
+ * common reference attributes of UBY-LMF are checked, so a clean report
+ * doesn't guarantee the import will succeed.
+ * </p>
+ * 
+ * <p>
+ * Results are best effort also when the db is read through
+ * {@link DiverCli#openReadOnlyConnection()} while another process writes
+ * it: they may be stale, or the lookup may fail.
+ * </p>
+ * 
+ * @since 0.1.0
+ */
+class ShadowCheck {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShadowCheck.class);
+
+    /**
+     * Max number of ids sent in a single query
+     */
+    private static final int QUERY_CHUNK = 500;
+
+    /**
+     * Default number of ids of a kind to look up above which all the ids of
+     * that kind are loaded from the db instead
+     */
+    static final int DEFAULT_INDEX_THRESHOLD = 20 * QUERY_CHUNK;
+
+    /**
+     * Max number of ids shown for each problem
+     */
+    private static final int MAX_SAMPLES = 5;
+
+    /**
+     * Table and id column of checked elements
+     */
+    private static final Map<String, String> ID_COLUMNS;
+
+    /**
+     * Element kind referenced by {@code element@attribute}
+     */
+    private static final Map<String, String> REFERENCES;
+
+    static {
+        Map<String, String> ids = new LinkedHashMap<>();
+        ids.put("Synset", "synsetId");
+        ids.put("Sense", "senseId");
+        ids.put("LexicalEntry", "lexicalEntryId");
+        ID_COLUMNS = ids;
+
+        Map<String, String> refs = new LinkedHashMap<>();
+        refs.put("Sense@synset", "Synset");
+        refs.put("SynsetRelation@target", "Synset");
+        refs.put("SenseRelation@target", "Sense");
+        refs.put("SenseAxis@senseOne", "Sense");
+        refs.put("SenseAxis@senseTwo", "Sense");
+        refs.put("SenseAxis@synsetOne", "Synset");
+        refs.put("SenseAxis@synsetTwo", "Synset");
+        refs.put("RelatedForm@targetLexicalEntry", "LexicalEntry");
+        refs.put("RelatedForm@targetSense", "Sense");
+        refs.put("Component@targetLexicalEntry", "LexicalEntry");
+        REFERENCES = refs;
+    }
+
+    private Set<String> resourceNames = new LinkedHashSet<>();
+
+    /**
+     * Ids defined in the files, by element kind
+     */
+    private Map<String, Set<String>> defined = newKindMap();
+
+    /**
+     * Ids referenced by the files, by element kind
+     */
+    private Map<String, Set<String>> referenced = newKindMap();
+
+    private Map<String, Set<String>> duplicated = newKindMap();
+
+    private int indexThreshold;
+
+    /**
+     * Indexes ids of a kind when more than {@link #DEFAULT_INDEX_THRESHOLD}
+     * are looked up.
+     * 
+     * @since 0.1.0
+     */
+    ShadowCheck() {
+        this(DEFAULT_INDEX_THRESHOLD);
+    }
+
+    /**
+     * @param indexThreshold
+     *            number of ids of a kind to look up above which all the ids
+     *            of that kind in the db are loaded into an {@link IdIndex}
+     * 
+     * @since 0.1.0
+     */
+    ShadowCheck(int indexThreshold) {
+        checkArgument(indexThreshold >= 0, "Index threshold can't be negative, found instead " + indexThreshold);
+        this.indexThreshold = indexThreshold;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static Map<String, Set<String>> newKindMap() {
+        Map<String, Set<String>> ret = new LinkedHashMap<>();
+        for (String kind : ID_COLUMNS.keySet()) {
+            ret.put(kind, new HashSet<String>());
+        }
+        return ret;
+    }
+
+    /**
+     * Collects ids and references of {@code xmlFile}
+     * 
+     * @throws DiverCliException
+     *             if the file can't be parsed
+     * @throws DiverCliIoException
+     * 
+     * @since 0.1.0
+     */
+    void scan(File xmlFile) {
+        checkNotNull(xmlFile);
+
+        try (InputStream is = new FileInputStream(xmlFile)) {
+            XMLStreamReader reader = EntryHashes.newInputFactory()
+                                                .createXMLStreamReader(is);
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String localName = reader.getLocalName();
+                if ("LexicalResource".equals(localName)) {
+                    String name = reader.getAttributeValue(null, "name");
+                    if (name != null) {
+                        resourceNames.add(name);
+                    }
+                }
+                Set<String> ids = defined.get(localName);
+                if (ids != null) {
+                    String id = reader.getAttributeValue(null, "id");
+                    if (id != null && !ids.add(id)) {
+                        duplicated.get(localName)
+                                  .add(id);
+                    }
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    String kind = REFERENCES.get(localName + "@" + reader.getAttributeLocalName(i));
+                    if (kind != null) {
+                        referenced.get(kind)
+                                  .add(reader.getAttributeValue(i));
+                    }
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException ex) {
+            throw new DiverCliException("Couldn't parse " + xmlFile.getAbsolutePath(), ex);
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't read " + xmlFile.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * Looks up scanned ids and references in the db. Only reads from
+     * {@code connection}. When there are many ids of a kind to look up, all
+     * ids of that kind in the db are loaded once into an {@link IdIndex}, so
+     * lookups don't need a query each.
+     * 
+     * @throws DiverCliException
+     * 
+     * @since 0.1.0
+     */
+    Report check(Connection connection) {
+        checkNotNull(connection);
+        Report report = new Report();
+        try {
+            report.existingResources.addAll(existing(connection, "LexicalResource", "name", resourceNames));
+            for (Map.Entry<String, String> entry : ID_COLUMNS.entrySet()) {
+                String kind = entry.getKey();
+                String column = entry.getValue();
+                Set<String> kindDefined = defined.get(kind);
+
+                Set<String> external = new HashSet<>();
+                for (String id : referenced.get(kind)) {
+                    if (!kindDefined.contains(id)) {
+                        external.add(id);
+                    }
+                }
+
+                IdIndex index = null;
+                if (kindDefined.size() + external.size() > indexThreshold) {
+                    long start = System.nanoTime();
+                    index = IdIndex.load(connection, kind, column);
+                    LOG.debug("Indexed " + index.size() + " " + kind + " ids of the db in "
+                            + DiverCli.formatElapsed(System.nanoTime() - start));
+                }
+
+                report.defined += kindDefined.size();
+                report.add(report.duplicated, kind, duplicated.get(kind));
+                report.add(report.conflicting, kind, index == null
+                        ? existing(connection, kind, column, kindDefined)
+                        : existing(index, kindDefined));
+
+                report.external += external.size();
+                external.removeAll(index == null
+                        ? existing(connection, kind, column, external)
+                        : existing(index, external));
+                report.add(report.missing, kind, external);
+            }
+        } catch (SQLException ex) {
+            throw new DiverCliException("Couldn't look up ids in the db, if another process is writing it"
+                    + " retry once it's done!", ex);
+        }
+        return report;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static Set<String> existing(IdIndex index, Collection<String> ids) {
+        Set<String> ret = new HashSet<>();
+        for (String id : ids) {
+            if (index.contains(id)) {
+                ret.add(id);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the {@code ids} present in {@code column} of {@code table},
+     * querying them in chunks.
+     * 
+     * @since 0.1.0
+     */
+    private static Set<String> existing(Connection connection, String table, String column, Collection<String> ids)
+            throws SQLException {
+        Set<String> ret = new HashSet<>();
+        List<String> chunk = new ArrayList<>();
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == QUERY_CHUNK) {
+                queryChunk(connection, table, column, chunk, ret);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            queryChunk(connection, table, column, chunk, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static void queryChunk(Connection connection, String table, String column, List<String> chunk,
+            Set<String> found) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(column)
+                                                        .append(" FROM ")
+                                                        .append(table)
+                                                        .append(" WHERE ")
+                                                        .append(column)
+                                                        .append(" IN (");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+        try (PreparedStatement st = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < chunk.size(); i++) {
+                st.setString(i + 1, chunk.get(i));
+            }
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getString(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcome of {@link ShadowCheck#check(Connection)}
+     * 
+     * @since 0.1.0
+     */
+    static class Report {
+
+        private int defined;
+
+        private int external;
+
+        private Set<String> existingResources = new LinkedHashSet<>();
+
+        private Map<String, Set<String>> duplicated = new LinkedHashMap<>();
+
+        private Map<String, Set<String>> conflicting = new LinkedHashMap<>();
+
+        private Map<String, Set<String>> missing = new LinkedHashMap<>();
+
+        /**
+         * @since 0.1.0
+         */
+        private void add(Map<String, Set<String>> problems, String kind, Set<String> ids) {
+            if (!ids.isEmpty()) {
+                problems.put(kind, ids);
+            }
+        }
+
+        /**
+         * Returns true if ids are defined twice in the files or are already
+         * in the db
+         * 
+         * @since 0.1.0
+         */
+        boolean hasConflicts() {
+            return !duplicated.isEmpty() || !conflicting.isEmpty();
+        }
+
+        /**
+         * Returns true if some references can't be resolved
+         * 
+         * @since 0.1.0
+         */
+        boolean hasMissing() {
+            return !missing.isEmpty();
+        }
+
+        /**
+         * Returns the ids already in the db, by element kind
+         * 
+         * @since 0.1.0
+         */
+        Map<String, Set<String>> getConflicting() {
+            return Collections.unmodifiableMap(conflicting);
+        }
+
+        /**
+         * Returns the references which can't be resolved, by element kind
+         * 
+         * @since 0.1.0
+         */
+        Map<String, Set<String>> getMissing() {
+            return Collections.unmodifiableMap(missing);
+        }
+
+        /**
+         * Returns the names of lexical resources already in the db, which the
+         * import would merge into
+         * 
+         * @since 0.1.0
+         */
+        Set<String> getExistingResources() {
+            return existingResources;
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(defined)
+              .append(" ids defined, ")
+              .append(external)
+              .append(" external references");
+            describe(sb, "defined more than once in the files", duplicated);
+            describe(sb, "already in the db", conflicting);
+            describe(sb, "referenced but missing", missing);
+            return sb.toString();
+        }
+
+        /**
+         * @since 0.1.0
+         */
+        private static void describe(StringBuilder sb, String problem, Map<String, Set<String>> problems) {
+            for (Map.Entry<String, Set<String>> entry : problems.entrySet()) {
+                sb.append("\n  ")
+                  .append(entry.getValue()
+                               .size())
+                  .append(' ')
+                  .append(entry.getKey())
+                  .append(" ids ")
+                  .append(problem)
+                  .append(", e.g. ");
+                int i = 0;
+                for (String id : entry.getValue()) {
+                    if (i == MAX_SAMPLES) {
+                        sb.append(", ...");
+                        break;
+                    }
+                    sb.append(i == 0 ? "" : ", ")
+                      .append(id);
+                    i += 1;
+                }
+            }
+        }
+    }
+}
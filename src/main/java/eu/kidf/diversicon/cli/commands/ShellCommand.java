@@ -0,0 +1,149 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.Parameters;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.exceptions.DiverCliIoException;
+import jline.console.ConsoleReader;
+import jline.console.completer.StringsCompleter;
+
+/**
+ * Interactive shell which runs many commands with the same db connection.
+ *
+ * @since 0.1.0
+ *
+ */
+@Parameters(separators = "=", commandDescription = "Opens an interactive shell to run many commands"
+        + " reusing the same db connection. Type 'exit' or press Ctrl-D to quit.")
+public class ShellCommand implements DiverCliCommand {
+
+    /**
+     * @since 0.1.0
+     */
+    public static final String CMD = "shell";
+
+    /**
+     * @since 0.1.0
+     */
+    public static final List<String> EXIT_COMMANDS = Arrays.asList("exit", "quit");
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShellCommand.class);
+
+    private DiverCli diverCli;
+
+    /**
+     * @since 0.1.0
+     */
+    public ShellCommand(DiverCli diverCli) {
+        checkNotNull(diverCli);
+        this.diverCli = diverCli;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void configure() {
+        // nothing to configure
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public void run() {
+
+        File projectDir = diverCli.getProjectDir();
+
+        if (new File(projectDir, DiverCli.INI_FILENAME).exists()) {
+            diverCli.connect();
+        } else {
+            LOG.info("No project found in " + projectDir.getAbsolutePath()
+                    + ", only commands not requiring a db will work.");
+        }
+
+        ConsoleReader reader;
+        try {
+            reader = new ConsoleReader();
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Couldn't open console!", ex);
+        }
+
+        try {
+            List<String> completions = new ArrayList<>(DiverCli.commandNames());
+            completions.addAll(EXIT_COMMANDS);
+            reader.addCompleter(new StringsCompleter(completions));
+            reader.setPrompt(DiverCli.CMD + "> ");
+
+            LOG.info("Type 'help' for the list of commands, 'exit' to quit.");
+
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (EXIT_COMMANDS.contains(line)) {
+                    break;
+                }
+
+                String[] args;
+                try {
+                    args = DiverCli.splitArgs(line);
+                } catch (IllegalArgumentException ex) {
+                    LOG.error(ex.getMessage());
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                int code = diverCli.tryExecute(DiverCli.withProject(args, projectDir));
+                String elapsed = DiverCli.formatElapsed(System.nanoTime() - start);
+
+                LOG.info("");
+                if (code == 0) {
+                    LOG.info("Done in " + elapsed);
+                } else {
+                    LOG.info("Failed after " + elapsed);
+                }
+            }
+        } catch (IOException ex) {
+            throw new DiverCliIoException("Error while reading from console!", ex);
+        } finally {
+            try {
+                reader.getTerminal()
+                      .restore();
+            } catch (Exception ex) {
+                LOG.debug("Couldn't restore terminal!", ex);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.1.0
+     */
+    @Override
+    public String getName() {
+        return CMD;
+    }
+
+}
@@ -2,9 +2,12 @@ package eu.kidf.diversicon.cli.commands;
 
 import static eu.kidf.diversicon.core.internal.Internals.checkNotNull;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,11 +55,13 @@ public class ValidateCommand implements DiverCliCommand {
     private List<String> xmlPaths = new ArrayList<>();
     
     
-    @SuppressWarnings("unused")
     private DiverCli cli;
     
     private XmlValidationConfig xmlValidationConfig;
 
+    @Nullable
+    private File tempFile;
+
     /**
      * @since 0.1.0
      */
@@ -73,6 +78,11 @@ public class ValidateCommand implements DiverCliCommand {
     @Override
     public void configure() {
         
+        xmlPaths.set(0, cli.resolvePath(xmlPaths.get(0)));
+        if (schema != null) {
+            schema = cli.resolvePath(schema);
+        }
+        
         XmlValidationConfig.Builder builder = XmlValidationConfig.builder()
                 .setFailFast(failFast)
                 .setLogLimit(logLimit)
@@ -95,8 +105,25 @@ public class ValidateCommand implements DiverCliCommand {
      */
     @Override
     public void run() {
-        ExtractedStream es = Diversicons.readData(xmlPaths.get(0));
-        DivXmlValidator validator = Diversicons.validateXml(es.toTempFile(), xmlValidationConfig);
+        String xmlPath = xmlPaths.get(0);
+        
+        // plain local files are validated in place, no need to copy them
+        File xmlFile = FileStager.localXmlFile(xmlPath);
+        tempFile = null;
+        if (xmlFile == null) {
+            ExtractedStream es = Diversicons.readData(xmlPath);
+            tempFile = es.toTempFile();
+            xmlFile = tempFile;
+        }
+        
+        DivXmlValidator validator;
+        try {
+            validator = Diversicons.validateXml(xmlFile, xmlValidationConfig);
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                LOG.debug("Couldn't delete temporary file " + tempFile.getAbsolutePath());
+            }
+        }
         
         LOG.info("");
         LOG.info("");
@@ -109,6 +136,17 @@ public class ValidateCommand implements DiverCliCommand {
         LOG.info("");
     }
 
+    /**
+     * Returns the temporary copy validated by last run, which by then is
+     * already deleted, or null if the file was validated in place.
+     * 
+     * @since 0.1.0
+     */
+    @Nullable
+    public File getTempFile() {
+        return tempFile;
+    }
+
     /**
      * {@inheritDoc}
      * 
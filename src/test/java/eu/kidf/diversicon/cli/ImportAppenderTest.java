@@ -0,0 +1,80 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.cli.test.CliTester.initEmpty;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.kidf.diversicon.cli.commands.ImportXmlCommand;
+import eu.kidf.diversicon.cli.test.DiverCliTestBase;
+import eu.kidf.diversicon.core.Diversicon;
+import eu.kidf.diversicon.core.ImportJob;
+import eu.kidf.diversicon.core.LogMessage;
+import eu.kidf.diversicon.core.test.DivTester;
+
+/**
+ * Lives in the same package as {@link ImportAppender} so it can feed messages
+ * to the job of a real import.
+ *
+ * @since 0.1.0
+ */
+public class ImportAppenderTest extends DiverCliTestBase {
+
+    private static final String PATTERN = "Missing synset {}";
+
+    /**
+     * Messages from the same template are stored once, plus a summary with
+     * repetitions and samples
+     *
+     * @since 0.1.0
+     */
+    @Test
+    public void testRepeatedMessages() {
+        DiverCli cli = initEmpty();
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d",
+                DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                         .getAbsolutePath())
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        long jobId = div.getImportJobs()
+                        .get(0)
+                        .getId();
+        ImportJob job = div.getImportJob(jobId);
+        ImportAppender appender = new ImportAppender(div);
+        for (int i = 0; i < 5; i++) {
+            appender.store(job, org.slf4j.event.Level.WARN, PATTERN, "Missing synset s" + i,
+                    new Object[] { "s" + i });
+        }
+        assertEquals(4, appender.getRepeated());
+        appender.saveSummaries();
+        assertEquals(0, appender.getRepeated());
+        div.getSession()
+           .close();
+
+        Diversicon div2 = Diversicon.connectToDb(cli.divConfig());
+        assertEquals(Arrays.asList("Missing synset s0",
+                "Repeated 4 more times: " + PATTERN + ", e.g. [s1], [s2], [s3]"),
+                missingSynsetMessages(div2.getImportJob(jobId)));
+        div2.getSession()
+            .close();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static List<String> missingSynsetMessages(ImportJob job) {
+        List<String> ret = new ArrayList<>();
+        for (LogMessage logMessage : job.getLogMessages()) {
+            if (logMessage.getMessage()
+                          .contains("Missing synset")) {
+                ret.add(logMessage.getMessage());
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,55 @@
+package eu.kidf.diversicon.cli;
+
+import static eu.kidf.diversicon.cli.test.CliTester.initEmpty;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import eu.kidf.diversicon.cli.commands.DbResetCommand;
+import eu.kidf.diversicon.cli.commands.LogCommand;
+import eu.kidf.diversicon.cli.test.DiverCliTestBase;
+
+/**
+ * Lives in the same package as {@link SchemaFingerprint} so it can check
+ * fingerprints directly.
+ * 
+ * @since 0.1.0
+ */
+public class SchemaFingerprintTest extends DiverCliTestBase {
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testSchemaFingerprint() {
+        DiverCli cli = initEmpty();
+        File fingerprint = new File(cli.getProjectDir(), SchemaFingerprint.FILENAME);
+
+        DiverCli cli1 = DiverCli.of(LogCommand.CMD);
+        cli1.run();
+        assertTrue(fingerprint.exists());
+        // db file must not change after the fingerprint is taken
+        assertTrue(SchemaFingerprint.of(cli1.divConfig()
+                                            .getDbConfig())
+                                    .matches(fingerprint));
+
+        // fingerprint now matches, db is not probed
+        DiverCli cli2 = DiverCli.of(LogCommand.CMD);
+        cli2.run();
+        assertTrue(fingerprint.exists());
+        assertTrue(SchemaFingerprint.of(cli2.divConfig()
+                                            .getDbConfig())
+                                    .matches(fingerprint));
+
+        DiverCli.of(DbResetCommand.CMD)
+                .run();
+        DiverCli cli3 = DiverCli.of(LogCommand.CMD);
+        cli3.run();
+        assertTrue(fingerprint.exists());
+        assertTrue(SchemaFingerprint.of(cli3.divConfig()
+                                            .getDbConfig())
+                                    .matches(fingerprint));
+    }
+}
@@ -0,0 +1,84 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.cli.MainCommand.PRJ_OPTION;
+import static eu.kidf.diversicon.cli.test.CliTester.importSkippingAugment;
+import static eu.kidf.diversicon.cli.test.CliTester.synsetRelations;
+import static eu.kidf.diversicon.core.test.LmfBuilder.lmf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.lmf.model.core.LexicalResource;
+import de.tudarmstadt.ukp.lmf.model.enums.ERelNameSemantics;
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.test.DiverCliTestBase;
+import eu.kidf.diversicon.core.test.DivTester;
+import eu.kidf.diversicon.core.test.LmfBuilder;
+
+/**
+ * Lives in the same package as {@link ExternalClosure}, which is not public.
+ *
+ * @since 0.1.0
+ */
+public class ExternalClosureTest extends DiverCliTestBase {
+
+    private static final int CHAIN_LENGTH = 12;
+
+    /**
+     * With a sort buffer of a few edges every step spills many runs to disk,
+     * which must still give the same graph as
+     * {@link eu.kidf.diversicon.core.Diversicon#processGraph()}
+     *
+     * @since 0.1.0
+     */
+    @Test
+    public void testSpilledClosure() {
+        File xml = DivTester.writeXml(deepGraph());
+
+        DiverCli.of(PRJ_OPTION, "expected", InitCommand.CMD)
+                .run();
+        importSkippingAugment("expected", xml);
+        DiverCli expectedCli = DiverCli.of(PRJ_OPTION, "expected", DbAugmentCommand.CMD);
+        expectedCli.run();
+        Set<String> expected = synsetRelations(expectedCli);
+
+        DiverCli.of(PRJ_OPTION, "spilled", InitCommand.CMD)
+                .run();
+        DiverCli cli = importSkippingAugment("spilled", xml);
+        cli.connect();
+        ExternalClosure closure = new ExternalClosure(cli.getDiversicon(), 1);
+        closure.setSortBuffer(4);
+        closure.run();
+        cli.disconnect();
+        Set<String> actual = synsetRelations(cli);
+
+        // a chain of n synsets alone has n * (n - 1) / 2 closure edges
+        assertTrue(expected.size() >= CHAIN_LENGTH * (CHAIN_LENGTH - 1) / 2);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Returns a resource whose hypernym graph is a long chain with shortcuts
+     * every few synsets, so the closure needs many steps and some synsets are
+     * reached by paths of different lengths.
+     *
+     * @since 0.1.0
+     */
+    private static LexicalResource deepGraph() {
+        LmfBuilder builder = lmf().lexicon()
+                                  .synset()
+                                  .lexicalEntry();
+        for (int i = 2; i <= CHAIN_LENGTH; i++) {
+            builder = builder.synset()
+                             .synsetRelation(ERelNameSemantics.HYPERNYM, i - 1);
+            if (i > 2 && i % 3 == 0) {
+                builder = builder.synsetRelation(ERelNameSemantics.HYPERNYM, i - 2);
+            }
+        }
+        return builder.build();
+    }
+}
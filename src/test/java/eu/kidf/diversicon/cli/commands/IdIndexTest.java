@@ -0,0 +1,119 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Lives in the same package as {@link IdIndex}, which is not public.
+ *
+ * @since 0.1.0
+ */
+public class IdIndexTest {
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testEmpty() {
+        IdIndex index = IdIndex.of(Collections.<String> emptyList());
+        assertEquals(0, index.size());
+        assertFalse(index.contains("a"));
+        assertFalse(index.contains(""));
+        assertEquals(-1, index.indexOf("a"));
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testContains() {
+        IdIndex index = IdIndex.of(Arrays.asList("b", "a", "ab", ""));
+        assertEquals(4, index.size());
+        assertTrue(index.contains("a"));
+        assertTrue(index.contains("ab"));
+        assertTrue(index.contains("b"));
+        assertTrue(index.contains(""));
+
+        // prefixes and extensions of present ids
+        assertFalse(index.contains("abc"));
+        assertFalse(index.contains("ba"));
+        assertFalse(index.contains("c"));
+        assertFalse(index.contains("A"));
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testDuplicates() {
+        IdIndex index = IdIndex.of(Arrays.asList("x", "y", "x", "y", "x"));
+        assertEquals(2, index.size());
+        assertEquals("x", index.get(0));
+        assertEquals("y", index.get(1));
+    }
+
+    /**
+     * Ids are sorted by UTF-8 bytes, which for characters outside the BMP
+     * differs from {@link String#compareTo(String)}
+     *
+     * @since 0.1.0
+     */
+    @Test
+    public void testNonAscii() {
+        String bmp = "\uFFFD";
+        String emoji = "\uD83D\uDE00";
+        List<String> ids = Arrays.asList("caf\u00e9", "cafe", "\u65e5\u672c", bmp, emoji, "z");
+        IdIndex index = IdIndex.of(ids);
+        assertEquals(ids.size(), index.size());
+        for (String id : ids) {
+            assertTrue(id, index.contains(id));
+            assertEquals(id, index.get(index.indexOf(id)));
+        }
+        assertTrue(index.indexOf(bmp) < index.indexOf(emoji));
+        assertFalse(index.contains("caf"));
+        assertFalse(index.contains("\u65e5"));
+    }
+
+    /**
+     * Positions are dense and follow the order of the ids
+     *
+     * @since 0.1.0
+     */
+    @Test
+    public void testIndexOfGet() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            ids.add("syn-" + i);
+        }
+        Collections.shuffle(ids);
+        IdIndex index = IdIndex.of(ids);
+        assertEquals(ids.size(), index.size());
+
+        Set<Integer> positions = new HashSet<>();
+        for (String id : ids) {
+            int pos = index.indexOf(id);
+            assertTrue(pos >= 0 && pos < index.size());
+            assertEquals(id, index.get(pos));
+            positions.add(pos);
+        }
+        assertEquals(ids.size(), positions.size());
+        for (int i = 1; i < index.size(); i++) {
+            assertTrue(index.get(i - 1)
+                            .compareTo(index.get(i)) < 0);
+        }
+
+        for (int i = 10000; i < 20000; i++) {
+            assertEquals(-1, index.indexOf("syn-" + i));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package eu.kidf.diversicon.cli.commands;
+
+import static eu.kidf.diversicon.cli.test.CliTester.initEmpty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.test.DiverCliTestBase;
+import eu.kidf.diversicon.core.test.DivTester;
+
+/**
+ * Lives in the same package as {@link ShadowCheck}, which is not public.
+ *
+ * @since 0.1.0
+ */
+public class ShadowCheckTest extends DiverCliTestBase {
+
+    /**
+     * Looking ids up through an {@link IdIndex} finds the same ones as
+     * querying them
+     *
+     * @since 0.1.0
+     */
+    @Test
+    public void testIndexedLookup() throws SQLException {
+        DiverCli cli = initEmpty();
+        File xml = DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM);
+
+        ShadowCheck.Report empty = check(cli, xml, 0);
+        assertFalse(empty.hasConflicts());
+        assertFalse(empty.hasMissing());
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", xml.getAbsolutePath())
+                .run();
+
+        ShadowCheck.Report queried = check(cli, xml, ShadowCheck.DEFAULT_INDEX_THRESHOLD);
+        ShadowCheck.Report indexed = check(cli, xml, 0);
+        assertTrue(queried.hasConflicts());
+        assertTrue(indexed.hasConflicts());
+        assertEquals(queried.getConflicting(), indexed.getConflicting());
+        assertEquals(queried.getMissing(), indexed.getMissing());
+        assertEquals(queried.getExistingResources(), indexed.getExistingResources());
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static ShadowCheck.Report check(DiverCli cli, File xml, int indexThreshold) throws SQLException {
+        ShadowCheck check = new ShadowCheck(indexThreshold);
+        check.scan(xml);
+        try (Connection connection = cli.openReadOnlyConnection()) {
+            return check.check(connection);
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package eu.kidf.diversicon.cli.test;
 
+import static eu.kidf.diversicon.cli.MainCommand.PRJ_OPTION;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
 
 import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.commands.ImportXmlCommand;
 import eu.kidf.diversicon.cli.commands.InitCommand;
 import eu.kidf.diversicon.data.DivWn31;
 
@@ -37,6 +46,70 @@ public class CliTester {
         return cli;
     }
 
+    /**
+     * Imports {@code xml} into existing {@code project} without augmenting
+     * the graph.
+     * 
+     * @return the cli which made the import, configured for {@code project}
+     *         and disconnected.
+     * 
+     * @since 0.1.0
+     */
+    public static DiverCli importSkippingAugment(String project, File xml) {
+        DiverCli cli = DiverCli.of(PRJ_OPTION, project, ImportXmlCommand.CMD, "--skip-augment", "-a", "a", "-d",
+                "d", xml.getAbsolutePath());
+        cli.run();
+        return cli;
+    }
+
+    /**
+     * Returns the synset relations in the db of {@code cli}, each as
+     * {@code relName relType source target depth}.
+     * 
+     * @since 0.1.0
+     */
+    public static Set<String> synsetRelations(DiverCli cli) {
+        Set<String> ret = new HashSet<>();
+        cli.connect();
+        for (Object row : cli.getDiversicon()
+                             .getSession()
+                             .createQuery("select sr.relName, sr.relType, sr.source.id, sr.target.id, sr.depth"
+                                     + " from DivSynsetRelation sr")
+                             .list()) {
+            Object[] cols = (Object[]) row;
+            ret.add(cols[0] + " " + cols[1] + " " + cols[2] + " " + cols[3] + " " + cols[4]);
+        }
+        cli.disconnect();
+        return ret;
+    }
+
+    /**
+     * Runs {@code runnable} and returns what it printed on standard output and
+     * standard error, where test logging also goes. Exceptions thrown by
+     * {@code runnable} are rethrown once the streams are restored.
+     * 
+     * @since 0.1.0
+     */
+    public static String captureOutput(Runnable runnable) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        try {
+            PrintStream ps = new PrintStream(bytes, true, "UTF-8");
+            System.setOut(ps);
+            System.setErr(ps);
+            runnable.run();
+            ps.flush();
+            return bytes.toString("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+            oldOut.print(bytes.toString());
+        }
+    }
+
     /**
      * @since 0.1.0
      */
@@ -4,11 +4,32 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import org.hibernate.cfg.Settings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.ini4j.InvalidFileFormatException;
 import org.ini4j.Wini;
 import org.junit.Assert;
@@ -20,8 +41,15 @@ import com.beust.jcommander.MissingCommandException;
 import com.beust.jcommander.ParameterException;
 import de.tudarmstadt.ukp.lmf.model.core.LexicalResource;
 import de.tudarmstadt.ukp.lmf.model.enums.ERelNameSemantics;
+import de.tudarmstadt.ukp.lmf.model.enums.ERelTypeSemantic;
+import de.tudarmstadt.ukp.lmf.model.semantics.Synset;
+import de.tudarmstadt.ukp.lmf.transform.DBConfig;
 import eu.kidf.diversicon.cli.DiverCli;
+import eu.kidf.diversicon.cli.DiverCliClient;
+import eu.kidf.diversicon.cli.DiverCliLite;
+import eu.kidf.diversicon.cli.DiverCliServer;
 import eu.kidf.diversicon.cli.MainCommand;
+import eu.kidf.diversicon.cli.commands.BatchCommand;
 import eu.kidf.diversicon.cli.commands.DbAugmentCommand;
 import eu.kidf.diversicon.cli.commands.DbResetCommand;
 import eu.kidf.diversicon.cli.commands.ExportSqlCommand;
@@ -31,23 +59,30 @@ import eu.kidf.diversicon.cli.commands.ImportShowCommand;
 import eu.kidf.diversicon.cli.commands.ImportXmlCommand;
 import eu.kidf.diversicon.cli.commands.InitCommand;
 import eu.kidf.diversicon.cli.commands.LogCommand;
+import eu.kidf.diversicon.cli.commands.ServeCommand;
 import eu.kidf.diversicon.cli.commands.ValidateCommand;
 import eu.kidf.diversicon.cli.exceptions.DiverCliException;
 import eu.kidf.diversicon.cli.exceptions.DiverCliNotFoundException;
 import eu.kidf.diversicon.cli.exceptions.DiverCliTerminatedException;
 import eu.kidf.diversicon.core.BuildInfo;
+import eu.kidf.diversicon.core.DivSynsetRelation;
 import eu.kidf.diversicon.core.Diversicon;
 import eu.kidf.diversicon.core.Diversicons;
 import eu.kidf.diversicon.core.ImportJob;
+import eu.kidf.diversicon.core.LogMessage;
 import eu.kidf.diversicon.core.exceptions.InvalidImportException;
 import eu.kidf.diversicon.core.exceptions.InvalidXmlException;
 import eu.kidf.diversicon.core.internal.Internals;
 import eu.kidf.diversicon.core.test.DivTester;
+import eu.kidf.diversicon.core.test.LmfBuilder;
 import eu.kidf.diversicon.data.DivUpper;
 import eu.kidf.diversicon.data.DivWn31;
 
 import static eu.kidf.diversicon.cli.MainCommand.PRJ_OPTION;
+import static eu.kidf.diversicon.cli.test.CliTester.captureOutput;
+import static eu.kidf.diversicon.cli.test.CliTester.importSkippingAugment;
 import static eu.kidf.diversicon.cli.test.CliTester.initEmpty;
+import static eu.kidf.diversicon.cli.test.CliTester.synsetRelations;
 import static eu.kidf.diversicon.core.internal.Internals.checkNotBlank;
 import static eu.kidf.diversicon.core.test.LmfBuilder.lmf;
 
@@ -62,6 +97,23 @@ public class DiverCliTest extends DiverCliTestBase {
      * @since 0.1.0
      */
     private static final String GLOBAL_CONF_CUSTOM = "global-conf-custom/";
+
+    /**
+     * All the indexes of the db, with their columns
+     * 
+     * @since 0.1.0
+     */
+    private static final String INDEXES_QUERY = "SELECT TABLE_NAME || ' ' || INDEX_NAME || ' ' || COLUMN_NAME"
+            + " FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_SCHEMA <> 'INFORMATION_SCHEMA'";
+
+    /**
+     * The indexes bulk imports drop
+     * 
+     * @since 0.1.0
+     */
+    private static final String SECONDARY_INDEXES_QUERY = "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES"
+            + " WHERE PRIMARY_KEY = FALSE AND NON_UNIQUE = TRUE AND IS_GENERATED = FALSE"
+            + " AND CONSTRAINT_NAME IS NULL AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA'";
     
     /**
      * 
@@ -327,6 +379,100 @@ public class DiverCliTest extends DiverCliTestBase {
         assertEquals(null, ini.get("Database", "666", String.class));
     }
 
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testDbTuningIni() throws InvalidFileFormatException, IOException {
+        DiverCli cli = initEmpty();
+        File iniFile = new File(cli.getProjectDir(), DiverCli.INI_FILENAME);
+
+        Wini ini = new Wini(iniFile);
+        ini.put(DiverCli.DATABASE_SECTION_INI, DiverCli.FETCH_SIZE_PROPERTY, "200");
+        ini.put(DiverCli.DATABASE_SECTION_INI, DiverCli.BATCH_SIZE_PROPERTY, "30");
+        ini.store();
+
+        DiverCli.of(LogCommand.CMD)
+                .run();
+
+        // Hibernate was surely already initialized by previous commands
+        DiverCli tuned = DiverCli.of();
+        tuned.execute(LogCommand.CMD);
+        assertEquals(30, tuned.getJdbcBatchSize());
+        assertEquals(Integer.valueOf(200), hibernateSettings(tuned).getJdbcFetchSize());
+
+        // switching project in the same cli must drop the tuning 
+        DiverCli.of(PRJ_OPTION, "untuned", InitCommand.CMD)
+                .run();
+        tuned.execute(PRJ_OPTION, "untuned", LogCommand.CMD);
+        assertTrue(tuned.getJdbcBatchSize() != 30);
+        assertEquals(null, hibernateSettings(tuned).getJdbcFetchSize());
+        tuned.disconnect();
+
+        ini.put(DiverCli.DATABASE_SECTION_INI, DiverCli.POOL_MIN_SIZE_PROPERTY, "10");
+        ini.put(DiverCli.DATABASE_SECTION_INI, DiverCli.POOL_MAX_SIZE_PROPERTY, "2");
+        ini.store();
+        try {
+            DiverCli.of(LogCommand.CMD)
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+
+        ini.remove(DiverCli.DATABASE_SECTION_INI, DiverCli.POOL_MIN_SIZE_PROPERTY);
+        ini.put(DiverCli.DATABASE_SECTION_INI, DiverCli.FETCH_SIZE_PROPERTY, "a lot");
+        ini.store();
+        try {
+            DiverCli.of(LogCommand.CMD)
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+    }
+
+    /**
+     * Saving project config keeps the tuning of the project ini and doesn't
+     * copy there the global one
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testDbTuningSaveConfig() throws InvalidFileFormatException, IOException {
+        DiverCli cli = initEmpty();
+        File projectIniFile = new File(cli.getProjectDir(), DiverCli.INI_FILENAME);
+        Wini projectIni = new Wini(projectIniFile);
+        projectIni.put(DiverCli.DATABASE_SECTION_INI, DiverCli.BATCH_SIZE_PROPERTY, "30");
+        projectIni.store();
+
+        Wini globalIni = new Wini(new File(DiverCli.globalConfDirPath(), DiverCli.INI_FILENAME));
+        globalIni.put(DiverCli.DATABASE_SECTION_INI, DiverCli.FETCH_SIZE_PROPERTY, "200");
+        globalIni.store();
+
+        DiverCli tuned = DiverCli.of(LogCommand.CMD);
+        tuned.run();
+        assertEquals(Integer.valueOf(200), hibernateSettings(tuned).getJdbcFetchSize());
+        tuned.saveConfig();
+        tuned.disconnect();
+
+        Wini saved = new Wini(projectIniFile);
+        assertEquals("30", saved.get(DiverCli.DATABASE_SECTION_INI, DiverCli.BATCH_SIZE_PROPERTY, String.class));
+        assertEquals(null, saved.get(DiverCli.DATABASE_SECTION_INI, DiverCli.FETCH_SIZE_PROPERTY, String.class));
+    }
+
+    /**
+     * Returns the settings Hibernate is actually using in {@code cli}
+     * connection.
+     * 
+     * @since 0.1.0
+     */
+    private static Settings hibernateSettings(DiverCli cli) {
+        return ((SessionFactoryImplementor) cli.getDiversicon()
+                                               .getSession()
+                                               .getSessionFactory()).getSettings();
+    }
+
     /**
      * @since 0.1.0
      */
@@ -376,49 +522,599 @@ public class DiverCliTest extends DiverCliTestBase {
             LOG.debug("Expected exception:", ex);
         }
 
-        try {
-            DiverCli.of(ImportXmlCommand.CMD, "--author", "a", "--description", " ", xmlFile.getAbsolutePath())
-                    .run();
-            Assert.fail("Need description!");
-        } catch (Exception ex) {
-            LOG.debug("Expected exception:", ex);
+        try {
+            DiverCli.of(ImportXmlCommand.CMD, "--author", "a", "--description", " ", xmlFile.getAbsolutePath())
+                    .run();
+            Assert.fail("Need description!");
+        } catch (Exception ex) {
+            LOG.debug("Expected exception:", ex);
+        }
+
+    }
+    
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlWarning(){
+        initEmpty();
+        
+        File xml = DivTester.writeXml(DivTester.GRAPH_WARNING,
+                DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX));
+        DiverCli cli = DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d","d", xml.getAbsolutePath());
+        try {
+            cli.run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (InvalidImportException ex){
+            LOG.debug("Caught expected exception: ", ex);
+        }        
+    }
+    
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlWarningForce(){
+        initEmpty();
+        
+        File xml = DivTester.writeXml(DivTester.GRAPH_WARNING,
+                DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX));
+        DiverCli cli = DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d","d", "--force", xml.getAbsolutePath());
+        
+        cli.run();
+            
+    }
+    
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlJobs() throws IOException {
+        DiverCli cli = initEmpty();
+
+        File zipFile = zip(DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM));
+        File xml = DivTester.writeXml(DivTester.GRAPH_WARNING,
+                DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX));
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--force", "--jobs", "2",
+                zipFile.getAbsolutePath(), xml.getAbsolutePath())
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(DivTester.GRAPH_1_HYPERNYM, div);
+        // not the staged copies
+        assertEquals(new HashSet<>(Arrays.asList(zipFile.getAbsolutePath(), xml.getAbsolutePath())),
+                importedFileUrls(div));
+        div.getSession()
+           .close();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlBatchSize() throws IOException {
+        DiverCli cli = initEmpty();
+
+        DiverCli importer = DiverCli.of();
+        importer.execute(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--batch-size", "50",
+                DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                         .getAbsolutePath());
+        assertEquals(50, importer.getJdbcBatchSize());
+        assertTrue(hibernateSettings(importer).isOrderInsertsEnabled());
+
+        // a new batch size reconnects, same resource can't be imported twice
+        importer.execute(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--force", "--batch-size", "20",
+                DivTester.writeXml(DivTester.GRAPH_WARNING,
+                        DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX))
+                         .getAbsolutePath());
+        assertEquals(20, importer.getJdbcBatchSize());
+        importer.disconnect();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(DivTester.GRAPH_1_HYPERNYM, div);
+        div.getSession()
+           .close();
+    }
+
+    /**
+     * Imports of many files are checkpointed also without --prefetch
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlResume() throws IOException {
+        DiverCli cli = initEmpty();
+
+        String xml = DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                              .getAbsolutePath();
+        String warningXml = DivTester.writeXml(DivTester.GRAPH_WARNING,
+                DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX))
+                                     .getAbsolutePath();
+
+        try {
+            DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", xml, warningXml)
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (InvalidImportException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        long firstJobId = div.getImportJobs()
+                             .get(0)
+                             .getId();
+        div.getSession()
+           .close();
+        File checkpoint = new File(cli.getProjectDir(), DiverCli.CMD + "-import-" + firstJobId + ".checkpoint");
+        assertTrue(checkpoint.exists());
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--force", "--resume", Long.toString(firstJobId),
+                xml, warningXml)
+                .run();
+
+        assertFalse(checkpoint.exists());
+        div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(DivTester.GRAPH_1_HYPERNYM, div);
+        div.getSession()
+           .close();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlFastLoad() throws IOException {
+        DiverCli cli = initEmpty();
+        File iniFile = new File(cli.getProjectDir(), DiverCli.INI_FILENAME);
+
+        Wini ini = new Wini(iniFile);
+        ini.put(DiverCli.DATABASE_SECTION_INI, DiverCli.FAST_LOAD_PROPERTY, "true");
+        ini.store();
+
+        String output = captureOutput(new Runnable() {
+            @Override
+            public void run() {
+                DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--dry-run",
+                        DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                                 .getAbsolutePath())
+                        .run();
+            }
+        });
+        assertFalse("Dry runs shouldn't reduce durability!", output.contains("Fast load"));
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d",
+                DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                         .getAbsolutePath())
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(DivTester.GRAPH_1_HYPERNYM, div);
+        div.getSession()
+           .close();
+
+        // safe settings are back
+        assertEquals("3", querySingle(cli, "SELECT LOCK_MODE()"));
+        assertEquals("16384", querySingle(cli,
+                "SELECT VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE NAME = 'CACHE_SIZE'"));
+
+        ini.put(DiverCli.DATABASE_SECTION_INI, DiverCli.FAST_LOAD_PROPERTY, "maybe");
+        ini.store();
+        try {
+            DiverCli.of(LogCommand.CMD)
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+    }
+
+    /**
+     * Returns the first column of the single row returned by {@code sql} on
+     * the db of {@code cli}, as a string.
+     * 
+     * @since 0.1.0
+     */
+    private static String querySingle(DiverCli cli, String sql) {
+        DBConfig dbConfig = cli.divConfig()
+                               .getDbConfig();
+        try (Connection conn = DriverManager.getConnection(dbConfig.getJdbc_url(), dbConfig.getUser(),
+                dbConfig.getPassword());
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            assertTrue("No result for " + sql, rs.next());
+            return rs.getString(1);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Couldn't run " + sql, ex);
+        }
+    }
+
+    /**
+     * Runs {@code sql} outside of any cli session and returns the values of
+     * the first column.
+     * 
+     * @since 0.1.0
+     */
+    private static Set<String> queryAll(DiverCli cli, String sql) {
+        DBConfig dbConfig = cli.divConfig()
+                               .getDbConfig();
+        Set<String> ret = new HashSet<>();
+        try (Connection conn = DriverManager.getConnection(dbConfig.getJdbc_url(), dbConfig.getUser(),
+                dbConfig.getPassword());
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                ret.add(rs.getString(1));
+            }
+            return ret;
+        } catch (SQLException ex) {
+            throw new RuntimeException("Couldn't run " + sql, ex);
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlProgress() throws IOException {
+        DiverCli cli = initEmpty();
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--progress-every", "1",
+                DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                         .getAbsolutePath())
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        String shown = div.formatImportJob(div.getImportJobs()
+                                              .get(0),
+                true);
+        assertTrue(shown.contains("Phase timings"));
+        div.getSession()
+           .close();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlMaxLogMessages() throws IOException {
+        DiverCli cli = initEmpty();
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--force", "--max-log-messages", "0",
+                DivTester.writeXml(DivTester.GRAPH_WARNING,
+                        DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX))
+                         .getAbsolutePath())
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        List<String> messages = logMessages(div.getImportJobs()
+                                               .get(0));
+        boolean dropped = false;
+        for (String message : messages) {
+            if (message.startsWith("Dropped ") && message.contains(" more log messages")) {
+                dropped = true;
+            }
+        }
+        assertTrue("Missing dropped messages summary in " + messages, dropped);
+        div.getSession()
+           .close();
+
+        try {
+            DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--max-log-messages", "-1",
+                    DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                             .getAbsolutePath())
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (IllegalArgumentException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+    }
+
+    /**
+     * Shadow dry runs write nothing and fail on ids already in the db
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlShadow() throws IOException {
+        DiverCli cli = initEmpty();
+        String xml = DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                              .getAbsolutePath();
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--dry-run", "--shadow", xml)
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        assertTrue(div.getImportJobs()
+                      .isEmpty());
+        div.getSession()
+           .close();
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", xml)
+                .run();
+
+        try {
+            DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--dry-run", "--shadow", xml)
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliException ex) {
+
+        }
+    }
+
+    /**
+     * Secondary indexes are dropped during bulk imports and come back
+     * afterwards, also when the import fails or the process dies before
+     * restoring them
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlBulk() throws IOException {
+        DiverCli cli = initEmpty();
+        File bulkIndexesFile = new File(cli.getProjectDir(), DiverCli.CMD + "-bulk-indexes.sql");
+        Set<String> indexes = queryAll(cli, INDEXES_QUERY);
+        assertFalse(queryAll(cli, SECONDARY_INDEXES_QUERY).isEmpty());
+
+        // as if the process died during a bulk import, indexes are restored on next connection
+        cli.connect();
+        cli.dropSecondaryIndexes();
+        assertTrue(queryAll(cli, SECONDARY_INDEXES_QUERY).isEmpty());
+        assertTrue(bulkIndexesFile.exists());
+        cli.disconnect();
+        cli.connect();
+        assertFalse(bulkIndexesFile.exists());
+        assertEquals(indexes, queryAll(cli, INDEXES_QUERY));
+        cli.disconnect();
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--bulk",
+                DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                         .getAbsolutePath())
+                .run();
+
+        assertFalse(bulkIndexesFile.exists());
+        assertEquals(indexes, queryAll(cli, INDEXES_QUERY));
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(DivTester.GRAPH_1_HYPERNYM, div);
+        div.getSession()
+           .close();
+
+        // a failing import restores indexes before throwing
+        try {
+            DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--bulk",
+                    DivTester.writeXml(DivTester.GRAPH_WARNING,
+                            DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX))
+                             .getAbsolutePath())
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (InvalidImportException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+        assertFalse(bulkIndexesFile.exists());
+        assertEquals(indexes, queryAll(cli, INDEXES_QUERY));
+
+        try {
+            DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--bulk", "--dry-run",
+                    DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                             .getAbsolutePath())
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (IllegalArgumentException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+    }
+
+    /**
+     * Importing again an unchanged resource in delta mode writes nothing
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlDelta() throws IOException {
+        DiverCli cli = initEmpty();
+
+        String xml = DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM)
+                              .getAbsolutePath();
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--delta", xml)
+                .run();
+        File deltaDir = new File(cli.getProjectDir(), DiverCli.CMD + "-delta");
+        assertEquals(1, deltaDir.list().length);
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--delta", xml)
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(DivTester.GRAPH_1_HYPERNYM, div);
+        assertEquals(1, div.getImportJobs()
+                           .size());
+        div.getSession()
+           .close();
+
+        DiverCli.of(DbResetCommand.CMD)
+                .run();
+        assertFalse(deltaDir.exists());
+    }
+
+    /**
+     * A second delta import of a resource writes only the entries added to it
+     * and stores their hashes
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlDeltaAdded() throws IOException {
+        DiverCli cli = initEmpty();
+
+        LexicalResource res = lmf().lexicon()
+                                   .synset()
+                                   .lexicalEntry()
+                                   .synset()
+                                   .build();
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--delta",
+                DivTester.writeXml(res)
+                         .getAbsolutePath())
+                .run();
+        File deltaDir = new File(cli.getProjectDir(), DiverCli.CMD + "-delta");
+        File hashesFile = deltaDir.listFiles()[0];
+        Set<String> first = storedEntryHashes(hashesFile);
+        assertEquals(3, first.size());
+
+        // same ids, plus a third synset
+        LexicalResource added = lmf().lexicon()
+                                     .synset()
+                                     .lexicalEntry()
+                                     .synset()
+                                     .synset()
+                                     .build();
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--delta",
+                DivTester.writeXml(added)
+                         .getAbsolutePath())
+                .run();
+
+        Set<String> stored = storedEntryHashes(hashesFile);
+        assertEquals(4, stored.size());
+        assertTrue(stored.containsAll(first));
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(added, div);
+        List<ImportJob> jobs = div.getImportJobs();
+        assertEquals(2, jobs.size());
+        assertTrue(jobs.get(1)
+                       .getDescription()
+                       .endsWith("(delta: 1 added, 0 changed, 0 removed, 3 unchanged)"));
+        div.getSession()
+           .close();
+    }
+
+    /**
+     * Delta imports can't overwrite entries, so a changed one is only
+     * reported and its previous version stays both in the db and in the
+     * stored hashes
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlDeltaChanged() throws IOException {
+        DiverCli cli = initEmpty();
+
+        LexicalResource res = lmf().lexicon()
+                                   .synset()
+                                   .lexicalEntry()
+                                   .synset()
+                                   .build();
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--delta",
+                DivTester.writeXml(res)
+                         .getAbsolutePath())
+                .run();
+        File hashesFile = new File(cli.getProjectDir(), DiverCli.CMD + "-delta").listFiles()[0];
+        Set<String> before = storedEntryHashes(hashesFile);
+
+        // same ids, second synset gets a relation
+        LexicalResource changed = lmf().lexicon()
+                                       .synset()
+                                       .lexicalEntry()
+                                       .synset()
+                                       .synsetRelation(ERelNameSemantics.HYPONYM, 1)
+                                       .build();
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--delta",
+                DivTester.writeXml(changed)
+                         .getAbsolutePath())
+                .run();
+
+        assertEquals(before, storedEntryHashes(hashesFile));
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(res, div);
+        assertEquals(0, div.getSynsetRelationsCount());
+        assertEquals(1, div.getImportJobs()
+                           .size());
+        div.getSession()
+           .close();
+    }
+
+    /**
+     * Returns the entry hashes saved by delta imports in {@code hashesFile},
+     * each as {@code key=hash}
+     * 
+     * @since 0.1.0
+     */
+    private static Set<String> storedEntryHashes(File hashesFile) throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(hashesFile)) {
+            props.load(is);
+        }
+        Set<String> ret = new HashSet<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("entry.")) {
+                ret.add(key + "=" + props.getProperty(key));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testImportXmlPrefetch() throws IOException {
+        DiverCli cli = initEmpty();
+
+        File zipFile = zip(DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM));
+        File xml = DivTester.writeXml(DivTester.GRAPH_WARNING,
+                DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX));
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d", "--force", "--prefetch", "1",
+                "--prefetch-max-mb", "1", xml.getAbsolutePath(), zipFile.getAbsolutePath())
+                .run();
+
+        Diversicon div = Diversicon.connectToDb(cli.divConfig());
+        DivTester.checkDb(DivTester.GRAPH_1_HYPERNYM, div);
+        assertEquals(2, div.getImportJobs()
+                           .size());
+        assertEquals(new HashSet<>(Arrays.asList(zipFile.getAbsolutePath(), xml.getAbsolutePath())),
+                importedFileUrls(div));
+        div.getSession()
+           .close();
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static List<String> logMessages(ImportJob job) {
+        List<String> ret = new ArrayList<>();
+        for (LogMessage logMessage : job.getLogMessages()) {
+            ret.add(logMessage.getMessage());
         }
-
+        return ret;
     }
-    
+
     /**
      * @since 0.1.0
      */
-    @Test
-    public void testImportXmlWarning(){
-        initEmpty();
-        
-        File xml = DivTester.writeXml(DivTester.GRAPH_WARNING,
-                DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX));
-        DiverCli cli = DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d","d", xml.getAbsolutePath());
-        try {
-            cli.run();
-            Assert.fail("Shouldn't arrive here!");
-        } catch (InvalidImportException ex){
-            LOG.debug("Caught expected exception: ", ex);
-        }        
+    private static Set<String> importedFileUrls(Diversicon div) {
+        Set<String> ret = new HashSet<>();
+        for (ImportJob job : div.getImportJobs()) {
+            ret.add(job.getFileUrl());
+        }
+        return ret;
     }
-    
+
     /**
+     * Zips provided file into a new archive 
+     * 
      * @since 0.1.0
      */
-    @Test
-    public void testImportXmlWarningForce(){
-        initEmpty();
-        
-        File xml = DivTester.writeXml(DivTester.GRAPH_WARNING,
-                DivTester.createLexResPackage(DivTester.GRAPH_WARNING, DivTester.TOO_LONG_PREFIX));
-        DiverCli cli = DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d","d", "--force", xml.getAbsolutePath());
-        
-        cli.run();
-            
+    private File zip(File file) throws IOException {
+        File ret = getNonExistingFile("zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(ret))) {
+            zos.putNextEntry(new ZipEntry(file.getName()));
+            Files.copy(file.toPath(), zos);
+            zos.closeEntry();
+        }
+        return ret;
     }
-    
 
     /**
      * This also tests MainCommand is working
@@ -551,6 +1247,217 @@ public class DiverCliTest extends DiverCliTestBase {
         cli2.disconnect();
     }
 
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testDbAugmentParallel() {
+
+        File xml = DivTester.writeXml(diamondGraph(lmf()));
+
+        Set<String> expected = augmentedEdges("serial", xml);
+        Set<String> actual = augmentedEdges("parallel", xml, "--parallel", "2");
+        assertTrue(expected.size() > 6);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Returns a resource whose hypernym graph is a diamond with a tail, plus
+     * an edge expressed only by its inverse, so closure paths have different
+     * lengths and edges need normalizing.
+     * 
+     * @param lmf
+     *            a new builder, different prefixes give distinct resources
+     * 
+     * @since 0.1.0
+     */
+    private static LexicalResource diamondGraph(LmfBuilder lmf) {
+        return lmf.lexicon()
+                    .synset()
+                    .lexicalEntry()
+                    .synset()
+                    .synsetRelation(ERelNameSemantics.HYPERNYM, 1)
+                    .synset()
+                    .synsetRelation(ERelNameSemantics.HYPERNYM, 1)
+                    .synset()
+                    .synsetRelation(ERelNameSemantics.HYPERNYM, 2)
+                    .synsetRelation(ERelNameSemantics.HYPERNYM, 3)
+                    .synset()
+                    .synsetRelation(ERelNameSemantics.HYPERNYM, 4)
+                    .synset()
+                    .synsetRelation(ERelNameSemantics.HYPONYM, 5)
+                    .build();
+    }
+
+    /**
+     * Returns a resource with a single synset placed between the bottom and
+     * the top of {@code base}, built with {@link #diamondGraph(LmfBuilder)}.
+     * The bottom reaches it through the inverse of a relation of the new
+     * synset, so the path from the bottom to the top gets shorter.
+     * 
+     * @since 0.1.0
+     */
+    private static LexicalResource linkedGraph(LexicalResource base) {
+        LexicalResource ret = lmf("inc").lexicon()
+                                        .synset()
+                                        .lexicalEntry()
+                                        .build();
+        Synset link = ret.getLexicons()
+                         .get(0)
+                         .getSynsets()
+                         .get(0);
+        List<Synset> baseSynsets = base.getLexicons()
+                                       .get(0)
+                                       .getSynsets();
+        addSynsetRelation(link, baseSynsets.get(4), ERelNameSemantics.HYPONYM);
+        addSynsetRelation(link, baseSynsets.get(0), ERelNameSemantics.HYPERNYM);
+        return ret;
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    private static void addSynsetRelation(Synset source, Synset target, String relName) {
+        DivSynsetRelation rel = new DivSynsetRelation();
+        rel.setSource(source);
+        rel.setTarget(target);
+        rel.setRelName(relName);
+        rel.setRelType(ERelTypeSemantic.taxonomic);
+        rel.setDepth(1);
+        source.getSynsetRelations()
+              .add(rel);
+    }
+
+    /**
+     * Imports {@code xml} without augmenting it into a new project, then
+     * augments it running {@code db-augment} with given {@code augmentArgs}.
+     * With no args the graph is augmented by
+     * {@link Diversicon#processGraph()}.
+     * 
+     * @return the synset relations of the db, see
+     *         {@link CliTester#synsetRelations(DiverCli)}
+     * 
+     * @since 0.1.0
+     */
+    private static Set<String> augmentedEdges(String project, File xml, String... augmentArgs) {
+        DiverCli.of(PRJ_OPTION, project, InitCommand.CMD)
+                .run();
+        importSkippingAugment(project, xml);
+        return augment(project, augmentArgs);
+    }
+
+    /**
+     * Runs {@code db-augment} with given {@code augmentArgs} on
+     * {@code project}.
+     * 
+     * @return the synset relations of the db, see
+     *         {@link CliTester#synsetRelations(DiverCli)}
+     * 
+     * @since 0.1.0
+     */
+    private static Set<String> augment(String project, String... augmentArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(PRJ_OPTION, project, DbAugmentCommand.CMD));
+        args.addAll(Arrays.asList(augmentArgs));
+        DiverCli cli = DiverCli.of(args.toArray(new String[args.size()]));
+        cli.run();
+        return synsetRelations(cli);
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testDbAugmentMemoryBudget() {
+
+        File xml = DivTester.writeXml(diamondGraph(lmf()));
+
+        Set<String> expected = augmentedEdges("serial", xml);
+        Set<String> actual = augmentedEdges("external", xml, "--memory-budget", "1");
+        assertTrue(expected.size() > 6);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * First incremental augmentation augments everything, next ones only
+     * synsets reaching relations imported afterwards, giving the same graph as
+     * a full augmentation. The second resource links into already augmented
+     * synsets, so some of their inferred edges must be rewritten.
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testDbAugmentIncremental() {
+
+        initEmpty();
+
+        LexicalResource base = diamondGraph(lmf());
+        File first = DivTester.writeXml(base);
+        File second = DivTester.writeXml(linkedGraph(base));
+
+        DiverCli.of(ImportXmlCommand.CMD, "--skip-augment", "-a", "a", "-d", "d", first.getAbsolutePath())
+                .run();
+        DiverCli cli = DiverCli.of(DbAugmentCommand.CMD, "--incremental");
+        cli.run();
+        assertTrue(new File(cli.getProjectDir(), DiverCli.CMD + "-augment.properties").exists());
+
+        List<Synset> baseSynsets = base.getLexicons()
+                                       .get(0)
+                                       .getSynsets();
+        String bottomToTop = ERelNameSemantics.HYPERNYM + " " + ERelTypeSemantic.taxonomic + " "
+                + baseSynsets.get(4)
+                             .getId()
+                + " " + baseSynsets.get(0)
+                                   .getId()
+                + " ";
+        assertTrue(synsetRelations(cli).contains(bottomToTop + 3));
+
+        DiverCli.of(ImportXmlCommand.CMD, "--skip-augment", "-a", "a", "-d", "d", second.getAbsolutePath())
+                .run();
+        DiverCli cli2 = DiverCli.of(DbAugmentCommand.CMD, "--incremental");
+        cli2.run();
+        Set<String> incremental = synsetRelations(cli2);
+        assertTrue(incremental.contains(bottomToTop + 2));
+        assertFalse(incremental.contains(bottomToTop + 3));
+
+        DiverCli.of(PRJ_OPTION, "full", InitCommand.CMD)
+                .run();
+        importSkippingAugment("full", first);
+        importSkippingAugment("full", second);
+        assertEquals(augment("full"), incremental);
+
+        // nothing new
+        DiverCli cli3 = DiverCli.of(DbAugmentCommand.CMD, "--incremental");
+        cli3.run();
+        assertEquals(incremental, synsetRelations(cli3));
+    }
+
+    /**
+     * Imports which augment the graph record where augmentation got to, so
+     * next incremental augmentation has nothing to do
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testDbAugmentIncrementalAfterImport() {
+
+        initEmpty();
+
+        DiverCli.of(ImportXmlCommand.CMD, "-a", "a", "-d", "d",
+                DivTester.writeXml(diamondGraph(lmf()))
+                         .getAbsolutePath())
+                .run();
+
+        String output = captureOutput(new Runnable() {
+            @Override
+            public void run() {
+                DiverCli.of(DbAugmentCommand.CMD, "--incremental")
+                        .run();
+            }
+        });
+        assertTrue(output.contains("Augmenting relations added after import job"));
+        assertTrue(output.contains("No new"));
+    }
+
     /**
      * @since 0.1.0
      */    
@@ -897,6 +1804,43 @@ public class DiverCliTest extends DiverCliTestBase {
         cli.run();
     }
 
+    /**
+     * Local files are validated in place, others are extracted first 
+     * 
+     * @since 0.1.0
+     */
+    @Test    
+    public void testValidationSources() throws IOException {
+        File xml = DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM);
+
+        DiverCli local = DiverCli.of(ValidateCommand.CMD, xml.toURI().toString());
+        local.run();
+        assertNull(((ValidateCommand) local.getCommands()
+                                           .get(ValidateCommand.CMD)).getTempFile());
+
+        DiverCli zipped = DiverCli.of(ValidateCommand.CMD, zip(xml).getAbsolutePath());
+        zipped.run();
+        File tempFile = ((ValidateCommand) zipped.getCommands()
+                                                 .get(ValidateCommand.CMD)).getTempFile();
+        assertNotNull(tempFile);
+        assertFalse(tempFile.exists());
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test    
+    public void testLite(){
+        DiverCliLite.main(ValidateCommand.CMD, DivUpper.XML_URI);
+        DiverCliLite.main(HelpCommand.CMD, ValidateCommand.CMD);
+        try {
+            DiverCliLite.main(LogCommand.CMD);
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliTerminatedException ex){
+            assertEquals(1, ex.getCode());
+        }
+    }
+
     /**
      * @since 0.1.0
      */
@@ -943,6 +1887,267 @@ public class DiverCliTest extends DiverCliTestBase {
     }
     
     
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testBatch() throws IOException {
+        initEmpty();
+
+        File xmlFile = DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM);
+        File outF = getNonExistingFile("xml");
+
+        File batch = getNonExistingFile("txt");
+        Files.write(batch.toPath(), Arrays.asList(
+                "# a comment",
+                "",
+                ImportXmlCommand.CMD + " -a a -d 'my descr' " + xmlFile.getAbsolutePath(),
+                LogCommand.CMD,
+                ExportXmlCommand.CMD + " --name " + DivTester.GRAPH_1_HYPERNYM.getName() + " "
+                        + outF.getAbsolutePath()),
+                StandardCharsets.UTF_8);
+
+        DiverCli.of(BatchCommand.CMD, batch.getAbsolutePath())
+                .run();
+
+        assertTrue(outF.exists());
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testBatchFailFast() throws IOException {
+        initEmpty();
+
+        File batch = getNonExistingFile("txt");
+        Files.write(batch.toPath(), Arrays.asList(
+                LogCommand.CMD + "g",
+                LogCommand.CMD),
+                StandardCharsets.UTF_8);
+
+        try {
+            DiverCli.of(BatchCommand.CMD, batch.getAbsolutePath())
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+
+        try {
+            DiverCli.of(BatchCommand.CMD, "--keep-going", batch.getAbsolutePath())
+                    .run();
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testProfileStartup() {
+        initEmpty();
+
+        String logProfile = startupProfile(captureOutput(new Runnable() {
+            @Override
+            public void run() {
+                DiverCli.of(MainCommand.PROFILE_STARTUP_OPTION, LogCommand.CMD)
+                        .run();
+            }
+        }));
+        assertTrue(logProfile, logProfile.startsWith("{\"startupProfile\":{\"command\":\"log\","));
+        for (String phase : Arrays.asList("parseArgs", "MainCommand.configure", "configureProject",
+                "Diversicon.connectToDb", "command.configure", "command.run", "disconnect")) {
+            assertTrue(phase + " is missing in " + logProfile, logProfile.contains("{\"name\":\"" + phase + "\","));
+        }
+        assertFalse(logProfile, logProfile.contains("\"wallMs\":-1"));
+
+        String helpProfile = startupProfile(captureOutput(new Runnable() {
+            @Override
+            public void run() {
+                DiverCli.of(MainCommand.PROFILE_STARTUP_OPTION, HelpCommand.CMD)
+                        .run();
+            }
+        }));
+        assertTrue(helpProfile, helpProfile.startsWith("{\"startupProfile\":{\"command\":\"help\","));
+        assertTrue(helpProfile, helpProfile.contains("{\"name\":\"command.run\","));
+        assertFalse(helpProfile, helpProfile.contains("configureProject"));
+
+        // after the command name it's not a main option
+        String output = captureOutput(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    DiverCli.of(LogCommand.CMD, MainCommand.PROFILE_STARTUP_OPTION)
+                            .run();
+                    Assert.fail("Shouldn't arrive here!");
+                } catch (ParameterException ex) {
+                    LOG.debug("Caught expected exception: ", ex);
+                }
+            }
+        });
+        assertFalse(output, output.contains("startupProfile"));
+    }
+
+    /**
+     * Returns the JSON profile found in {@code output}, checking there is
+     * exactly one.
+     * 
+     * @since 0.1.0
+     */
+    private static String startupProfile(String output) {
+        String ret = null;
+        for (String line : output.split("\\r?\\n")) {
+            int i = line.indexOf("{\"startupProfile\"");
+            if (i >= 0) {
+                assertNull("Found more than one profile in output: " + output, ret);
+                ret = line.substring(i)
+                          .trim();
+                assertTrue(ret, ret.endsWith("]}}"));
+            }
+        }
+        assertNotNull("Couldn't find profile in output: " + output, ret);
+        return ret;
+    }
+
+    /**
+     * Checks all the commands in the index can be instantiated, and that
+     * normally only the invoked one is.
+     * 
+     * @since 0.1.0
+     */
+    @Test
+    public void testCommandIndex() {
+        initEmpty();
+
+        DiverCli cli = DiverCli.of(HelpCommand.CMD);
+        cli.run();
+        assertEquals(DiverCli.commandNames(), cli.getCommands()
+                                                 .keySet());
+        for (String name : DiverCli.commandNames()) {
+            assertEquals(name, cli.getCommands()
+                                  .get(name)
+                                  .getName());
+        }
+
+        DiverCli cli2 = DiverCli.of(LogCommand.CMD);
+        cli2.run();
+        assertEquals(Collections.singleton(LogCommand.CMD), cli2.getCommands()
+                                                                .keySet());
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testSplitArgs() {
+        assertArrayEquals(new String[] {}, DiverCli.splitArgs("  "));
+        assertArrayEquals(new String[] { "log" }, DiverCli.splitArgs(" log "));
+        assertArrayEquals(new String[] { "import-xml", "-d", "my descr", "a b.xml" },
+                DiverCli.splitArgs("import-xml -d \"my descr\" a\\ b.xml"));
+        assertArrayEquals(new String[] { "a\"b", "" }, DiverCli.splitArgs("'a\"b' ''"));
+        try {
+            DiverCli.splitArgs("log \"");
+            Assert.fail("Shouldn't arrive here!");
+        } catch (IllegalArgumentException ex) {
+
+        }
+    }
+
+    /**
+     * @since 0.1.0
+     */
+    @Test
+    public void testServe() throws InterruptedException, IOException {
+        initEmpty();
+
+        Thread server = new Thread() {
+            @Override
+            public void run() {
+                DiverCli.of(ServeCommand.CMD).run();
+            }
+        };
+        server.start();
+
+        File serverFile = new File(DiverCli.globalConfDirPath(), DiverCliServer.SERVER_FILENAME);
+        for (int i = 0; i < 300 && serverFile.length() == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(serverFile.length() > 0);
+
+        DiverCliClient.main(LogCommand.CMD);
+        DiverCliClient.main(LogCommand.CMD);
+
+        try {
+            DiverCliClient.main(LogCommand.CMD + "g");
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliTerminatedException ex) {
+            assertEquals(1, ex.getCode());
+        }
+
+        // relative paths must be resolved against client dir, not server one
+        File workingDir = new File(System.getProperty(DiverCli.SYSTEM_PROPERTY_WORKING_DIR));
+        Files.copy(DivTester.writeXml(DivTester.GRAPH_1_HYPERNYM).toPath(),
+                new File(workingDir, "served.xml").toPath());
+
+        String output = captureOutput(new Runnable() {
+            @Override
+            public void run() {
+                DiverCliClient.main(ValidateCommand.CMD, "served.xml");
+            }
+        });
+        // server console lines have a logback prefix, forwarded ones don't
+        assertTrue(output, Arrays.asList(output.split("\\r?\\n"))
+                                 .contains("XML is valid!"));
+
+        final int[] code = { 0 };
+        captureOutput(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    DiverCliClient.main(ValidateCommand.CMD, "not-there.xml");
+                } catch (DiverCliTerminatedException ex) {
+                    code[0] = ex.getCode();
+                }
+            }
+        });
+        assertTrue(code[0] != 0);
+
+        DiverCliClient.main(ExportSqlCommand.CMD, "dump.sql");
+        assertTrue(new File(workingDir, "dump.sql").exists());
+
+        // a client sending nothing is dropped, next ones are still served
+        Properties props = new Properties();
+        try (FileInputStream fis = new FileInputStream(serverFile)) {
+            props.load(fis);
+        }
+        try (Socket silent = new Socket(InetAddress.getByName(null),
+                Integer.parseInt(props.getProperty(DiverCliServer.PORT_PROPERTY)))) {
+            DiverCliClient.main(LogCommand.CMD);
+        }
+
+        // a rejected request must not be run locally behind user's back
+        byte[] serverProps = Files.readAllBytes(serverFile.toPath());
+        Files.write(serverFile.toPath(), new String(serverProps, StandardCharsets.ISO_8859_1)
+                .replaceAll("token=.*", "token=wrong")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        try {
+            DiverCliClient.main(LogCommand.CMD);
+            Assert.fail("Shouldn't arrive here!");
+        } catch (DiverCliTerminatedException ex) {
+            LOG.debug("Caught expected exception: ", ex);
+            assertEquals(1, ex.getCode());
+        }
+        Files.write(serverFile.toPath(), serverProps);
+
+        DiverCliClient.main(DiverCliClient.STOP_OPTION);
+        server.join(30000);
+        assertFalse(server.isAlive());
+        assertFalse(serverFile.exists());
+    }
+
     /**
      * @since 0.1.0
      */